@@ -287,7 +287,7 @@ public void setExcludes(String[] excludes) {
      * @param pattern The pattern to normalize, must not be <code>null</code>.
      * @return The normalized pattern, never <code>null</code>.
      */
-    private String normalizePattern(String pattern) {
+    static String normalizePattern(String pattern) {
         pattern = pattern.trim();
 
         if (pattern.startsWith(SelectorUtils.REGEX_HANDLER_PREFIX)) {
@@ -0,0 +1,173 @@
+package org.codehaus.plexus.util;
+
+/*
+ * Copyright The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aho-Corasick automaton locating a set of words in a text in a single pass. The text is fed one character at a time
+ * through {@link #next(int, char)}, starting from state <code>0</code>, and {@link #match(int)} tells which word ends
+ * at the last character.
+ * <p>
+ * The automaton is immutable and may be shared between threads.
+ * </p>
+ *
+ * @since 4.0.4
+ */
+final class AhoCorasick {
+    private final String[] words;
+
+    private final int maxLength;
+
+    /** Sorted characters of the transitions leaving each state. */
+    private final char[][] labels;
+
+    /** Target states of the transitions leaving each state, in the order of the labels. */
+    private final int[][] targets;
+
+    /** State of the longest proper suffix of each state which is also a prefix of a word. */
+    private final int[] failure;
+
+    /** Index of the longest word ending at each state, -1 if none. */
+    private final int[] matches;
+
+    /**
+     * @param words the words to locate
+     * @throws IllegalArgumentException if a word is empty or repeated
+     */
+    AhoCorasick(String[] words) {
+        this.words = words.clone();
+
+        // trie of the words
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> terminals = new ArrayList<>();
+        trie.add(new TreeMap<Character, Integer>());
+        terminals.add(-1);
+        int max = 0;
+        for (int w = 0; w < words.length; w++) {
+            String word = words[w];
+            if (word == null || word.isEmpty()) {
+                throw new IllegalArgumentException("Words must not be empty");
+            }
+            int state = 0;
+            for (int i = 0; i < word.length(); i++) {
+                Integer next = trie.get(state).get(word.charAt(i));
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<Character, Integer>());
+                    terminals.add(-1);
+                    trie.get(state).put(word.charAt(i), next);
+                }
+                state = next;
+            }
+            if (terminals.get(state) >= 0) {
+                throw new IllegalArgumentException("Duplicate word " + word);
+            }
+            terminals.set(state, w);
+            max = Math.max(max, word.length());
+        }
+        this.maxLength = max;
+
+        final int stateCount = trie.size();
+        labels = new char[stateCount][];
+        targets = new int[stateCount][];
+        for (int state = 0; state < stateCount; state++) {
+            TreeMap<Character, Integer> children = trie.get(state);
+            labels[state] = new char[children.size()];
+            targets[state] = new int[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> child : children.entrySet()) {
+                labels[state][i] = child.getKey();
+                targets[state][i++] = child.getValue();
+            }
+        }
+
+        // failure links breadth first, so that shallower states are complete when they are followed
+        failure = new int[stateCount];
+        matches = new int[stateCount];
+        matches[0] = -1;
+        int[] queue = new int[stateCount];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = 0;
+        while (head < tail) {
+            int state = queue[head++];
+            int own = terminals.get(state);
+            // the state is longer than any of its suffixes
+            matches[state] = own >= 0 || state == 0 ? own : matches[failure[state]];
+            for (int i = 0; i < labels[state].length; i++) {
+                int child = targets[state][i];
+                failure[child] = state == 0 ? 0 : next(failure[state], labels[state][i]);
+                queue[tail++] = child;
+            }
+        }
+    }
+
+    /**
+     * @param state the current state
+     * @param c the next character of the text
+     * @return the state after the character
+     */
+    int next(int state, char c) {
+        while (true) {
+            char[] stateLabels = labels[state];
+            int low = 0;
+            int high = stateLabels.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char label = stateLabels[mid];
+                if (label < c) {
+                    low = mid + 1;
+                } else if (label > c) {
+                    high = mid - 1;
+                } else {
+                    return targets[state][mid];
+                }
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = failure[state];
+        }
+    }
+
+    /**
+     * @param state a state
+     * @return the index of the longest word ending at this state, -1 if none
+     */
+    int match(int state) {
+        return matches[state];
+    }
+
+    /**
+     * @param index the index of a word
+     * @return the length of the word
+     */
+    int length(int index) {
+        return words[index].length();
+    }
+
+    /**
+     * @return the length of the longest word
+     */
+    int maxLength() {
+        return maxLength;
+    }
+}
@@ -0,0 +1,301 @@
+package org.codehaus.plexus.util;
+
+/*
+ * Copyright The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Arrays;
+
+/**
+ * A precompiled set of characters, tested with a couple of bit operations instead of searching a String of delimiters
+ * or calling {@link Character} for every character.
+ * <p>
+ * ASCII characters are kept in two 64-bit masks, other characters in a bit set covering the Basic Multilingual Plane
+ * up to the highest character of the set. Matchers are immutable and thread safe. Each predefined matcher is only
+ * compiled the first time it is used.
+ * </p>
+ *
+ * <pre>
+ * CharMatcher.whitespace().trimFrom(" a b ")   = "a b"
+ * CharMatcher.whitespace().removeFrom(" a b ") = "ab"
+ * CharMatcher.digit().matchesAllOf("123")      = true
+ * </pre>
+ *
+ * @since 4.0.4
+ */
+public final class CharMatcher {
+    private static final int WHITESPACE_KIND = 0;
+
+    private static final int LETTER_KIND = 1;
+
+    private static final int DIGIT_KIND = 2;
+
+    private static final int LETTER_OR_DIGIT_KIND = 3;
+
+    /** Characters 0 to 63. */
+    private final long lowAscii;
+
+    /** Characters 64 to 127. */
+    private final long highAscii;
+
+    /** Characters from 128, one bit per character indexed from 0, up to the highest character of the set. */
+    private final long[] words;
+
+    private CharMatcher(long lowAscii, long highAscii, long[] words) {
+        this.lowAscii = lowAscii;
+        this.highAscii = highAscii;
+        this.words = words;
+    }
+
+    /**
+     * @return the characters for which {@link Character#isWhitespace(char)} is <code>true</code>
+     */
+    public static CharMatcher whitespace() {
+        return Whitespace.MATCHER;
+    }
+
+    /**
+     * @return the characters for which {@link Character#isLetter(char)} is <code>true</code>
+     */
+    public static CharMatcher letter() {
+        return Letter.MATCHER;
+    }
+
+    /**
+     * @return the characters for which {@link Character#isDigit(char)} is <code>true</code>
+     */
+    public static CharMatcher digit() {
+        return Digit.MATCHER;
+    }
+
+    /**
+     * @return the characters for which {@link Character#isLetterOrDigit(char)} is <code>true</code>
+     */
+    public static CharMatcher letterOrDigit() {
+        return LetterOrDigit.MATCHER;
+    }
+
+    /**
+     * @param chars the characters to match, not null
+     * @return a matcher of any of the given characters
+     */
+    static CharMatcher anyOf(CharSequence chars) {
+        long low = 0L;
+        long high = 0L;
+        char max = 0;
+        for (int i = 0; i < chars.length(); i++) {
+            char c = chars.charAt(i);
+            if (c < 64) {
+                low |= 1L << c;
+            } else if (c < 128) {
+                high |= 1L << c;
+            } else if (c > max) {
+                max = c;
+            }
+        }
+
+        long[] words = null;
+        if (max > 0) {
+            words = new long[(max >> 6) + 1];
+            for (int i = 0; i < chars.length(); i++) {
+                char c = chars.charAt(i);
+                if (c >= 128) {
+                    words[c >> 6] |= 1L << c;
+                }
+            }
+        }
+        return new CharMatcher(low, high, words);
+    }
+
+    private static CharMatcher of(int kind) {
+        long[] words = new long[(Character.MAX_VALUE >> 6) + 1];
+        int max = 0;
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            if (test(kind, (char) c)) {
+                words[c >> 6] |= 1L << c;
+                max = c;
+            }
+        }
+        long[] nonAscii = max >= 128 ? Arrays.copyOf(words, (max >> 6) + 1) : null;
+        return new CharMatcher(words[0], words[1], nonAscii);
+    }
+
+    private static boolean test(int kind, char c) {
+        switch (kind) {
+            case WHITESPACE_KIND:
+                return Character.isWhitespace(c);
+            case LETTER_KIND:
+                return Character.isLetter(c);
+            case DIGIT_KIND:
+                return Character.isDigit(c);
+            default:
+                return Character.isLetterOrDigit(c);
+        }
+    }
+
+    // each predefined matcher scans the whole Basic Multilingual Plane, so it is built when its holder is first used
+
+    private static final class Whitespace {
+        static final CharMatcher MATCHER = of(WHITESPACE_KIND);
+    }
+
+    private static final class Letter {
+        static final CharMatcher MATCHER = of(LETTER_KIND);
+    }
+
+    private static final class Digit {
+        static final CharMatcher MATCHER = of(DIGIT_KIND);
+    }
+
+    private static final class LetterOrDigit {
+        static final CharMatcher MATCHER = of(LETTER_OR_DIGIT_KIND);
+    }
+
+    /**
+     * @param other another matcher
+     * @return a matcher of the characters matched by this matcher or the other one
+     */
+    public CharMatcher or(CharMatcher other) {
+        long[] merged = null;
+        if (words != null || other.words != null) {
+            long[] longest =
+                    words == null || (other.words != null && other.words.length > words.length) ? other.words : words;
+            long[] shortest = longest == words ? other.words : words;
+            merged = longest.clone();
+            if (shortest != null) {
+                for (int i = 0; i < shortest.length; i++) {
+                    merged[i] |= shortest[i];
+                }
+            }
+        }
+        return new CharMatcher(lowAscii | other.lowAscii, highAscii | other.highAscii, merged);
+    }
+
+    /**
+     * @param c a character
+     * @return <code>true</code> if the character belongs to this set
+     */
+    public boolean matches(char c) {
+        if (c < 64) {
+            return (lowAscii & (1L << c)) != 0;
+        }
+        if (c < 128) {
+            return (highAscii & (1L << c)) != 0;
+        }
+        int word = c >> 6;
+        return words != null && word < words.length && (words[word] & (1L << c)) != 0;
+    }
+
+    /**
+     * @param sequence the characters to check
+     * @return <code>true</code> if every character matches, including for an empty sequence
+     */
+    public boolean matchesAllOf(CharSequence sequence) {
+        for (int i = 0; i < sequence.length(); i++) {
+            if (!matches(sequence.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param sequence the characters to search
+     * @param start the index to start from
+     * @return the index of the first matching character from <code>start</code>, -1 if none
+     */
+    public int indexIn(CharSequence sequence, int start) {
+        for (int i = Math.max(start, 0); i < sequence.length(); i++) {
+            if (matches(sequence.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param sequence the characters to search
+     * @return the index of the last matching character, -1 if none
+     */
+    public int lastIndexIn(CharSequence sequence) {
+        for (int i = sequence.length() - 1; i >= 0; i--) {
+            if (matches(sequence.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param str the String to remove characters from, not null
+     * @return the String without the matching characters
+     */
+    public String removeFrom(String str) {
+        int first = indexIn(str, 0);
+        if (first < 0) {
+            return str;
+        }
+
+        StringBuilder sb = new StringBuilder(str.length() - 1);
+        sb.append(str, 0, first);
+        for (int i = first + 1; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (!matches(c)) {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param str the String to trim, not null
+     * @return the String without the matching characters at its start and end
+     */
+    public String trimFrom(String str) {
+        int start = 0;
+        int end = str.length();
+        while (start < end && matches(str.charAt(start))) {
+            start++;
+        }
+        while (end > start && matches(str.charAt(end - 1))) {
+            end--;
+        }
+        return str.substring(start, end);
+    }
+
+    /**
+     * @param str the String to trim, not null
+     * @return the String without the matching characters at its start
+     */
+    public String trimLeadingFrom(String str) {
+        int start = 0;
+        while (start < str.length() && matches(str.charAt(start))) {
+            start++;
+        }
+        return str.substring(start);
+    }
+
+    /**
+     * @param str the String to trim, not null
+     * @return the String without the matching characters at its end
+     */
+    public String trimTrailingFrom(String str) {
+        int end = str.length();
+        while (end > 0 && matches(str.charAt(end - 1))) {
+            end--;
+        }
+        return str.substring(0, end);
+    }
+}
@@ -60,12 +60,45 @@
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 /**
  * Unzip a file.
+ * <p>
+ * By default the archive is read sequentially as a stream. When more than one thread is configured with
+ * {@link #setThreads(int)}, the entries are listed from the central directory of the archive with {@link ZipFile}, the
+ * directories are created once upfront and the files are extracted concurrently.
+ * </p>
+ * <p>
+ * In {@link #setIncremental(boolean) incremental} mode the archive is also read through its central directory, and
+ * files whose size and CRC-32 already match the entry are left untouched. The CRC-32 of an existing file is computed
+ * from its content, unless a {@link #setManifest(File) manifest} recorded it together with the file size and last
+ * modification time when the file was last extracted.
+ * </p>
+ * <p>
+ * When {@link #setIncludes(String[]) include} or {@link #setExcludes(String[]) exclude} patterns are given, only the
+ * matching entries are extracted. The other entries are skipped through the central directory without being
+ * decompressed.
+ * </p>
  *
  * @author costin@dnt.ro
  * @author <a href="mailto:stefan.bodewig@epost.de">Stefan Bodewig</a>
@@ -75,19 +108,45 @@
  */
 public class Expand {
 
+    private static final int BUFFER_SIZE = 65536;
+
     private File dest; // req
 
     private File source; // req
 
     private boolean overwrite = true;
 
+    private int threads = 1;
+
+    private boolean incremental;
+
+    private File manifest;
+
+    private Properties records;
+
+    private MatchPatterns includes;
+
+    private MatchPatterns excludes;
+
+    private File canonicalDir;
+
+    private String canonicalDirPath;
+
+    private final Set<File> createdDirs = new HashSet<>();
+
+    private byte[] buffer;
+
     /**
      * Do the work.
      *
      * @exception Exception Thrown in unrecoverable error.
      */
     public void execute() throws Exception {
-        expandFile(source, dest);
+        if (threads > 1 || incremental || includes != null || excludes != null) {
+            expandZipFile(source, dest);
+        } else {
+            expandFile(source, dest);
+        }
     }
 
     protected void expandFile(final File srcF, final File dir) throws Exception {
@@ -98,6 +157,8 @@ protected void expandFile(final File srcF, final File dir) throws Exception {
             }
         } catch (IOException ioe) {
             throw new Exception("Error while expanding " + srcF.getPath(), ioe);
+        } finally {
+            createdDirs.clear();
         }
     }
 
@@ -109,22 +170,7 @@ protected void extractFile(
             Date entryDate,
             boolean isDirectory)
             throws Exception {
-        File f = FileUtils.resolveFile(dir, entryName);
-
-        try {
-            String canonicalDirPath = dir.getCanonicalPath();
-            String canonicalFilePath = f.getCanonicalPath();
-
-            // Ensure the file is within the target directory
-            // We need to check that the canonical file path starts with the canonical directory path
-            // followed by a file separator to prevent path traversal attacks
-            if (!canonicalFilePath.startsWith(canonicalDirPath + File.separator)
-                    && !canonicalFilePath.equals(canonicalDirPath)) {
-                throw new IOException("Entry '" + entryName + "' outside the target directory.");
-            }
-        } catch (IOException e) {
-            throw new IOException("Failed to verify entry path for '" + entryName + "'", e);
-        }
+        File f = resolveEntry(dir, entryName);
 
         try {
             if (!overwrite && f.exists() && f.lastModified() >= entryDate.getTime()) {
@@ -133,19 +179,19 @@ protected void extractFile(
 
             // create intermediary directories - sometimes zip don't add them
             File dirF = f.getParentFile();
-            dirF.mkdirs();
+            if (createdDirs.add(dirF)) {
+                dirF.mkdirs();
+            }
 
             if (isDirectory) {
-                f.mkdirs();
+                if (createdDirs.add(f)) {
+                    f.mkdirs();
+                }
             } else {
-                byte[] buffer = new byte[65536];
-
-                try (OutputStream fos = Files.newOutputStream(f.toPath())) {
-                    for (int length = compressedInputStream.read(buffer);
-                            length >= 0;
-                            fos.write(buffer, 0, length), length = compressedInputStream.read(buffer))
-                        ;
+                if (buffer == null) {
+                    buffer = new byte[BUFFER_SIZE];
                 }
+                copy(compressedInputStream, f, buffer);
             }
 
             f.setLastModified(entryDate.getTime());
@@ -154,6 +200,251 @@ protected void extractFile(
         }
     }
 
+    /**
+     * Expands the archive through its central directory: the target directories are created first, then the file
+     * entries are extracted by up to {@link #setThreads(int) threads} workers.
+     *
+     * @param srcF the archive
+     * @param dir the destination directory
+     * @throws Exception if the archive cannot be read or an entry cannot be extracted
+     */
+    private void expandZipFile(final File srcF, final File dir) throws Exception {
+        records = new Properties();
+        if (incremental && manifest != null && manifest.isFile()) {
+            try (InputStream in = Files.newInputStream(manifest.toPath())) {
+                records.load(in);
+            }
+        }
+
+        try (ZipFile zipFile = new ZipFile(srcF)) {
+            final List<ZipEntry> directoryEntries = new ArrayList<>();
+            final List<ZipEntry> fileEntries = new ArrayList<>();
+            final List<File> files = new ArrayList<>();
+            // entries resolving to the same file are extracted once, from the last one like a sequential expansion
+            final Map<File, Integer> fileIndexes = new HashMap<>();
+            // sorted so that parents come first and each directory is only created once
+            final Set<File> directories = new TreeSet<>();
+
+            for (Enumeration<? extends ZipEntry> e = zipFile.entries(); e.hasMoreElements(); ) {
+                ZipEntry ze = e.nextElement();
+                if (!isSelected(ze)) {
+                    continue;
+                }
+                File f = resolveEntry(dir, ze.getName());
+                if (!overwrite && f.exists() && f.lastModified() >= ze.getTime()) {
+                    continue;
+                }
+                if (ze.isDirectory()) {
+                    directoryEntries.add(ze);
+                    directories.add(f);
+                } else {
+                    Integer index = fileIndexes.get(f);
+                    if (index != null) {
+                        fileEntries.set(index, ze);
+                        continue;
+                    }
+                    fileIndexes.put(f, fileEntries.size());
+                    fileEntries.add(ze);
+                    files.add(f);
+                    directories.add(f.getParentFile());
+                }
+            }
+
+            for (File directory : directories) {
+                directory.mkdirs();
+            }
+
+            extractEntries(zipFile, fileEntries, files);
+
+            for (ZipEntry ze : directoryEntries) {
+                resolveEntry(dir, ze.getName()).setLastModified(ze.getTime());
+            }
+
+            if (incremental && manifest != null) {
+                manifest.getAbsoluteFile().getParentFile().mkdirs();
+                try (OutputStream out = Files.newOutputStream(manifest.toPath())) {
+                    records.store(out, "Expanded from " + srcF.getPath());
+                }
+            }
+        } catch (IOException ioe) {
+            throw new Exception("Error while expanding " + srcF.getPath(), ioe);
+        } finally {
+            records = null;
+        }
+    }
+
+    private void extractEntries(final ZipFile zipFile, final List<ZipEntry> entries, final List<File> files)
+            throws IOException {
+        final AtomicInteger next = new AtomicInteger();
+        final int workers = Math.min(threads, entries.size());
+        if (workers <= 1) {
+            new EntryWorker(zipFile, entries, files, next).call();
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<Void>> futures = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                futures.add(executor.submit(new EntryWorker(zipFile, entries, files, next)));
+            }
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    // stop the other workers at their next entry
+                    next.set(entries.size());
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IOException(cause);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    next.set(entries.size());
+                    throw new IOException("Interrupted while expanding " + zipFile.getName(), e);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean isSelected(ZipEntry ze) {
+        if (includes == null && excludes == null) {
+            return true;
+        }
+        String name = ze.getName();
+        if (name.endsWith("/")) {
+            name = name.substring(0, name.length() - 1);
+        }
+        name = name.replace('/', File.separatorChar);
+        return (includes == null || includes.matches(name, true))
+                && (excludes == null || !excludes.matches(name, true));
+    }
+
+    /**
+     * @param ze the entry
+     * @param f the file the entry is extracted to
+     * @param buffer a buffer to read the file with
+     * @return <code>true</code> if the file has the size and CRC-32 recorded for the entry in the central directory
+     * @throws IOException if the file cannot be read
+     */
+    private boolean isUpToDate(ZipEntry ze, File f, byte[] buffer) throws IOException {
+        final long size = ze.getSize();
+        final long crc = ze.getCrc();
+        if (size < 0 || crc < 0 || !f.isFile() || f.length() != size) {
+            return false;
+        }
+
+        final long lastModified = f.lastModified();
+        if (record(size, crc, lastModified).equals(records.getProperty(ze.getName()))) {
+            return true;
+        }
+
+        final CRC32 checksum = new CRC32();
+        try (InputStream in = Files.newInputStream(f.toPath())) {
+            for (int length = in.read(buffer); length >= 0; length = in.read(buffer)) {
+                checksum.update(buffer, 0, length);
+            }
+        }
+        if (checksum.getValue() != crc) {
+            return false;
+        }
+        records.setProperty(ze.getName(), record(size, crc, lastModified));
+        return true;
+    }
+
+    private static String record(long size, long crc, long lastModified) {
+        return size + ":" + Long.toHexString(crc) + ":" + lastModified;
+    }
+
+    /**
+     * Extracts file entries, taking the next one from a shared index until none are left. Each worker reuses a single
+     * buffer.
+     */
+    private final class EntryWorker implements Callable<Void> {
+        private final ZipFile zipFile;
+
+        private final List<ZipEntry> entries;
+
+        private final List<File> files;
+
+        private final AtomicInteger next;
+
+        EntryWorker(ZipFile zipFile, List<ZipEntry> entries, List<File> files, AtomicInteger next) {
+            this.zipFile = zipFile;
+            this.entries = entries;
+            this.files = files;
+            this.next = next;
+        }
+
+        @Override
+        public Void call() throws IOException {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            for (int i = next.getAndIncrement(); i < entries.size(); i = next.getAndIncrement()) {
+                ZipEntry ze = entries.get(i);
+                File f = files.get(i);
+                if (incremental && isUpToDate(ze, f, buffer)) {
+                    continue;
+                }
+                try (InputStream in = zipFile.getInputStream(ze)) {
+                    copy(in, f, buffer);
+                }
+                f.setLastModified(ze.getTime());
+                if (incremental && ze.getSize() >= 0 && ze.getCrc() >= 0) {
+                    records.setProperty(ze.getName(), record(ze.getSize(), ze.getCrc(), f.lastModified()));
+                }
+            }
+            return null;
+        }
+    }
+
+    private static void copy(InputStream in, File f, byte[] buffer) throws IOException {
+        try (OutputStream fos = Files.newOutputStream(f.toPath())) {
+            for (int length = in.read(buffer); length >= 0; fos.write(buffer, 0, length), length = in.read(buffer))
+                ;
+        }
+    }
+
+    /**
+     * Resolves an entry against the destination directory, ensuring it does not end up outside of it. The canonical
+     * path of the destination directory is computed once per directory.
+     *
+     * @param dir the destination directory
+     * @param entryName the entry name
+     * @return the file to extract the entry to
+     * @throws IOException if the entry is outside the destination directory
+     */
+    private File resolveEntry(File dir, String entryName) throws IOException {
+        File f = FileUtils.resolveFile(dir, entryName);
+
+        try {
+            if (!dir.equals(canonicalDir)) {
+                canonicalDirPath = dir.getCanonicalPath();
+                canonicalDir = dir;
+            }
+            String canonicalFilePath = f.getCanonicalPath();
+
+            // Ensure the file is within the target directory
+            // We need to check that the canonical file path starts with the canonical directory path
+            // followed by a file separator to prevent path traversal attacks
+            if (!canonicalFilePath.startsWith(canonicalDirPath + File.separator)
+                    && !canonicalFilePath.equals(canonicalDirPath)) {
+                throw new IOException("Entry '" + entryName + "' outside the target directory.");
+            }
+        } catch (IOException e) {
+            throw new IOException("Failed to verify entry path for '" + entryName + "'", e);
+        }
+        return f;
+    }
+
     /**
      * Set the destination directory. File will be unzipped into the destination directory.
      *
@@ -178,4 +469,63 @@ public void setSrc(File s) {
     public void setOverwrite(boolean b) {
         overwrite = b;
     }
+
+    /**
+     * @param threads the maximum number of entries to extract concurrently, values greater than one read the archive
+     *            through its central directory. Defaults to 1, extracting sequentially from the archive stream.
+     * @since 4.0.4
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * @param incremental Should files already matching the size and CRC-32 of their entry be left untouched? Reads the
+     *            archive through its central directory.
+     * @since 4.0.4
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * @param manifest a properties file recording the size, CRC-32 and last modification time of the files extracted in
+     *            {@link #setIncremental(boolean) incremental} mode, so that unchanged files need not be read again on the
+     *            next expansion. Not used by default.
+     * @since 4.0.4
+     */
+    public void setManifest(File manifest) {
+        this.manifest = manifest;
+    }
+
+    /**
+     * @param includes Ant style patterns of the entries to extract, matched against the entry names as by
+     *            {@link DirectoryScanner#setIncludes(String[])}. May be <code>null</code> to extract every entry.
+     * @since 4.0.4
+     */
+    public void setIncludes(String[] includes) {
+        this.includes = toMatchPatterns(includes);
+    }
+
+    /**
+     * @param excludes Ant style patterns of the entries not to extract, matched against the entry names as by
+     *            {@link DirectoryScanner#setExcludes(String[])}. May be <code>null</code> to exclude no entry.
+     * @since 4.0.4
+     */
+    public void setExcludes(String[] excludes) {
+        this.excludes = toMatchPatterns(excludes);
+    }
+
+    private static MatchPatterns toMatchPatterns(String[] patterns) {
+        if (patterns == null) {
+            return null;
+        }
+        List<String> list = new ArrayList<>(patterns.length);
+        for (String pattern : patterns) {
+            if (pattern != null) {
+                list.add(AbstractScanner.normalizePattern(pattern));
+            }
+        }
+        return MatchPatterns.from(list);
+    }
 }
@@ -0,0 +1,240 @@
+package org.codehaus.plexus.util;
+
+/*
+ * Copyright The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The trimmed, non-empty lines of a file that do not start with <code>#</code>, as returned by
+ * {@link FileUtils#loadFileLines(java.io.File, String)}.
+ * <p>
+ * Lines are produced lazily while iterating. For encodings where every ASCII character is a single byte (UTF-8 and the
+ * ISO-8859 / windows code pages) the file content is read on the heap and scanned as bytes: the kept lines are decoded,
+ * the dropped comment lines are only checked when they hold non-ASCII bytes. Other encodings decode the whole content
+ * once and scan its characters. Malformed content is reported as an {@link UncheckedIOException} while iterating, for
+ * the dropped lines as well as for the kept ones.
+ * </p>
+ *
+ * @since 4.0.4
+ */
+final class FileLines implements Iterable<String> {
+    private final ByteBuffer bytes;
+
+    private final CharSequence chars;
+
+    private final Charset charset;
+
+    private FileLines(ByteBuffer bytes, CharSequence chars, Charset charset) {
+        this.bytes = bytes;
+        this.chars = chars;
+        this.charset = charset;
+    }
+
+    static FileLines of(Path path, Charset charset) throws IOException {
+        if (!isAsciiCompatible(charset)) {
+            return new FileLines(null, charset.newDecoder().decode(ByteBuffer.wrap(Files.readAllBytes(path))), charset);
+        }
+        // not memory mapped: a mapping is only released by the garbage collector and locks the file on Windows
+        return new FileLines(ByteBuffer.wrap(Files.readAllBytes(path)), null, charset);
+    }
+
+    /**
+     * @param charset the charset
+     * @return <code>true</code> if the charset encodes every ASCII character as the same single byte, and never uses
+     *         such a byte as part of another character
+     */
+    static boolean isAsciiCompatible(Charset charset) {
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            return true;
+        }
+        try {
+            if (charset.newEncoder().maxBytesPerChar() != 1.0f) {
+                return false;
+            }
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+
+        byte[] ascii = new byte[128];
+        for (int i = 0; i < ascii.length; i++) {
+            ascii[i] = (byte) i;
+        }
+        String decoded = new String(ascii, charset);
+        if (decoded.length() != ascii.length) {
+            return false;
+        }
+        for (int i = 0; i < ascii.length; i++) {
+            if (decoded.charAt(i) != i) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return bytes != null ? new ByteLineIterator(bytes.duplicate(), charset) : new CharLineIterator(chars);
+    }
+
+    private abstract static class LineIterator implements Iterator<String> {
+        private String next;
+
+        private boolean done;
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !done) {
+                next = computeNext();
+                done = next == null;
+            }
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String result = next;
+            next = null;
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * @return the next line to keep, or <code>null</code> at the end of the content
+         */
+        protected abstract String computeNext();
+    }
+
+    private static final class ByteLineIterator extends LineIterator {
+        private final ByteBuffer buffer;
+
+        private final CharsetDecoder decoder;
+
+        private int position;
+
+        ByteLineIterator(ByteBuffer buffer, Charset charset) {
+            this.buffer = buffer;
+            this.decoder = charset.newDecoder();
+            this.position = buffer.position();
+        }
+
+        @Override
+        protected String computeNext() {
+            final int limit = buffer.limit();
+            while (position < limit) {
+                int start = position;
+                int end = start;
+                while (end < limit && !isLineEnd(buffer.get(end))) {
+                    end++;
+                }
+                position = end + 1;
+
+                // same rules as String.trim(), applied before anything is allocated
+                while (start < end && (buffer.get(start) & 0xff) <= ' ') {
+                    start++;
+                }
+                while (end > start && (buffer.get(end - 1) & 0xff) <= ' ') {
+                    end--;
+                }
+                if (start < end) {
+                    if (buffer.get(start) != '#') {
+                        return decode(start, end - start);
+                    }
+                    validate(start, end);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Checks that a dropped line decodes, without creating it when it is plain ASCII.
+         */
+        private void validate(int start, int end) {
+            for (int i = start; i < end; i++) {
+                if (buffer.get(i) < 0) {
+                    decode(start, end - start);
+                    return;
+                }
+            }
+        }
+
+        private String decode(int offset, int length) {
+            ByteBuffer line = buffer.duplicate();
+            line.limit(offset + length).position(offset);
+            try {
+                return decoder.decode(line).toString();
+            } catch (CharacterCodingException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private static boolean isLineEnd(byte b) {
+            // a CR LF pair leaves an empty line in between which is dropped anyway
+            return b == '\n' || b == '\r';
+        }
+    }
+
+    private static final class CharLineIterator extends LineIterator {
+        private final CharSequence content;
+
+        private int position;
+
+        CharLineIterator(CharSequence content) {
+            this.content = content;
+        }
+
+        @Override
+        protected String computeNext() {
+            final int limit = content.length();
+            while (position < limit) {
+                int start = position;
+                int end = start;
+                while (end < limit && content.charAt(end) != '\n' && content.charAt(end) != '\r') {
+                    end++;
+                }
+                position = end + 1;
+
+                while (start < end && content.charAt(start) <= ' ') {
+                    start++;
+                }
+                while (end > start && content.charAt(end - 1) <= ' ') {
+                    end--;
+                }
+                if (start < end && content.charAt(start) != '#') {
+                    return content.subSequence(start, end).toString();
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -55,16 +55,24 @@
  *
  */
 
-import java.io.BufferedReader;
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.net.URL;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -73,6 +81,7 @@
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 
@@ -1879,6 +1888,21 @@ public static void copyFile(File from, File to, String encoding, FilterWrapper[]
 
     public abstract static class FilterWrapper {
         public abstract Reader getReader(Reader fileReader);
+
+        /**
+         * Filters the encoded content instead of the characters, see {@link InterpolationFilterInputStream}. When
+         * every wrapper supports it, {@link FileUtils#copyFile(File, File, String, FilterWrapper[], boolean)} copies
+         * the file without converting it to characters and back. The content is still checked to be valid in its
+         * encoding, failing on malformed input like the {@link #getReader(Reader) reader} path does.
+         *
+         * @param fileStream the content to filter
+         * @param charset the encoding of the content
+         * @return the filtered content, or <code>null</code> if this wrapper only filters characters
+         * @since 4.0.4
+         */
+        public InputStream getInputStream(InputStream fileStream, Charset charset) {
+            return null;
+        }
     }
 
     /**
@@ -1895,6 +1919,12 @@ public abstract static class FilterWrapper {
     public static void copyFile(File from, File to, String encoding, FilterWrapper[] wrappers, boolean overwrite)
             throws IOException {
         if (wrappers != null && wrappers.length > 0) {
+            Charset charset =
+                    encoding == null || encoding.length() < 1 ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+            if (copyFilteredBytes(from, to, charset, wrappers)) {
+                return;
+            }
+
             // buffer so it isn't reading a byte at a time!
             Reader fileReader = null;
             Writer fileWriter = null;
@@ -1933,13 +1963,136 @@ public static void copyFile(File from, File to, String encoding, FilterWrapper[]
         }
     }
 
+    /**
+     * Copies the file through the byte filters of the wrappers, if they all have one. The source content is decoded
+     * on the side, so that malformed input fails as it does when read through a {@link Reader}.
+     *
+     * @return <code>false</code> if some wrapper only filters characters, nothing has been written then
+     */
+    private static boolean copyFilteredBytes(File from, File to, Charset charset, FilterWrapper[] wrappers)
+            throws IOException {
+        if (!InterpolationFilterInputStream.isSupported(charset)) {
+            return false;
+        }
+
+        try (InputStream fileStream = Files.newInputStream(from.toPath())) {
+            InputStream stream = new DecodingCheckInputStream(fileStream, charset);
+            for (FilterWrapper wrapper : wrappers) {
+                stream = wrapper.getInputStream(stream, charset);
+                if (stream == null) {
+                    return false;
+                }
+            }
+
+            try (OutputStream out = Files.newOutputStream(to.toPath())) {
+                IOUtil.copy(stream, out);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Passes the bytes of an ASCII compatible encoding through unchanged, checking that they decode. Chunks of ASCII
+     * bytes are not decoded, since they cannot be part of another character.
+     */
+    private static final class DecodingCheckInputStream extends FilterInputStream {
+        private static final ByteBuffer NOTHING_PENDING = ByteBuffer.allocate(0);
+
+        private final CharsetDecoder decoder;
+
+        private final CharBuffer chars = CharBuffer.allocate(1024);
+
+        private final byte[] single = new byte[1];
+
+        /** The bytes of a character split across two reads. */
+        private ByteBuffer pending = NOTHING_PENDING;
+
+        DecodingCheckInputStream(InputStream in, Charset charset) {
+            super(in);
+            this.decoder = charset.newDecoder();
+        }
+
+        @Override
+        public int read() throws IOException {
+            int n;
+            while ((n = read(single, 0, 1)) == 0)
+                ;
+            return n < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n < 0) {
+                if (pending.hasRemaining()) {
+                    throw new MalformedInputException(pending.remaining());
+                }
+            } else {
+                check(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] b = new byte[(int) Math.min(Math.max(n, 0L), 8192L)];
+            long skipped = 0;
+            for (int r; skipped < n && (r = read(b, 0, (int) Math.min(b.length, n - skipped))) >= 0; skipped += r)
+                ;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void check(byte[] b, int off, int len) throws IOException {
+            if (!pending.hasRemaining()) {
+                int i = off;
+                while (i < off + len && b[i] >= 0) {
+                    i++;
+                }
+                if (i == off + len) {
+                    return;
+                }
+                len -= i - off;
+                off = i;
+            }
+
+            ByteBuffer bytes;
+            if (pending.hasRemaining()) {
+                bytes = ByteBuffer.allocate(pending.remaining() + len);
+                ((Buffer) bytes.put(pending).put(b, off, len)).flip();
+            } else {
+                bytes = ByteBuffer.wrap(b, off, len);
+            }
+            while (true) {
+                ((Buffer) chars).clear();
+                CoderResult result = decoder.decode(bytes, chars, false);
+                if (result.isError()) {
+                    result.throwException();
+                }
+                if (result.isUnderflow()) {
+                    break;
+                }
+            }
+            if (bytes.hasRemaining()) {
+                pending = ByteBuffer.allocate(bytes.remaining());
+                ((Buffer) pending.put(bytes)).flip();
+            } else {
+                pending = NOTHING_PENDING;
+            }
+        }
+    }
+
     private static boolean isSourceNewerThanDestination(File source, File destination) {
         return (destination.lastModified() == 0L && source.lastModified() == 0L)
                 || destination.lastModified() < source.lastModified();
     }
 
     /**
-     * Note: the file content is read with platform encoding
+     * Note: the file content is read as UTF-8
      *
      * @param file the file
      * @return a List containing every every line not starting with # and not empty
@@ -1948,21 +2101,37 @@ private static boolean isSourceNewerThanDestination(File source, File destinatio
     public static List<String> loadFile(File file) throws IOException {
         final List<String> lines = new ArrayList<String>();
 
-        if (file.exists()) {
-            try (BufferedReader reader = Files.newBufferedReader(file.toPath())) {
-                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
-                    line = line.trim();
-
-                    if (!line.startsWith("#") && line.length() != 0) {
-                        lines.add(line);
-                    }
-                }
+        try {
+            for (String line : loadFileLines(file, StandardCharsets.UTF_8.name())) {
+                lines.add(line);
             }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
 
         return lines;
     }
 
+    /**
+     * Lazily reads every line of a file that is not empty and does not start with # once trimmed, like
+     * {@link #loadFile(File)} but without collecting them in a list. The file content is read when this method is
+     * called, the lines are only created while iterating and the dropped ones are never allocated.
+     *
+     * @param file the file
+     * @param encoding the file encoding, or <code>null</code> for the platform encoding
+     * @return the trimmed lines not starting with # and not empty, no lines if the file does not exist. Content that
+     *         cannot be decoded, in a kept or a dropped line, is reported by the iterator as an
+     *         {@link UncheckedIOException}.
+     * @throws IOException if any
+     * @since 4.0.4
+     */
+    public static Iterable<String> loadFileLines(File file, String encoding) throws IOException {
+        if (!file.exists()) {
+            return Collections.emptyList();
+        }
+        return FileLines.of(file.toPath(), encoding != null ? Charset.forName(encoding) : Charset.defaultCharset());
+    }
+
     /**
      * For Windows OS, check if the file name contains any of the following characters:
      * <code>":", "*", "?", "\"", "&lt;", "&gt;", "|"</code>
@@ -58,6 +58,7 @@
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -68,6 +69,8 @@
 import java.io.StringWriter;
 import java.io.Writer;
 import java.nio.channels.Channel;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
 
 /**
  * General IO Stream manipulation.
@@ -135,6 +138,16 @@
 public final class IOUtil extends BaseIOUtil {
     private static final int DEFAULT_BUFFER_SIZE = 1024 * 16;
 
+    /**
+     * The maximum size of array to allocate, some VMs reserve header words in an array.
+     */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * The class of the streams returned by {@link java.nio.file.Files#newInputStream} for the default file system.
+     */
+    private static final String CHANNEL_INPUT_STREAM = "sun.nio.ch.ChannelInputStream";
+
     /**
      * Private constructor to prevent instantiation.
      */
@@ -281,6 +294,10 @@ public static String toString(final InputStream input) throws IOException {
      * @throws IOException io issue
      */
     public static String toString(final InputStream input, final int bufferSize) throws IOException {
+        final long expectedLength = knownLength(input);
+        if (expectedLength >= 0) {
+            return new String(toByteArray(input, bufferSize, expectedLength));
+        }
         final StringWriter sw = new StringWriter();
         copy(input, sw, bufferSize);
         return sw.toString();
@@ -309,11 +326,34 @@ public static String toString(final InputStream input, final String encoding) th
      */
     public static String toString(final InputStream input, final String encoding, final int bufferSize)
             throws IOException {
+        final long expectedLength = knownLength(input);
+        if (expectedLength >= 0) {
+            return toString(input, encoding, bufferSize, expectedLength);
+        }
         final StringWriter sw = new StringWriter();
         copy(input, sw, encoding, bufferSize);
         return sw.toString();
     }
 
+    /**
+     * @return Get the contents of an <code>InputStream</code> as a String, decoding the bytes once they have been read
+     * into an array sized for <code>expectedLength</code>. The length is only a hint: a shorter or longer stream is
+     * still read completely.
+     * @param input to convert
+     * @param encoding The name of a supported character encoding, or <code>null</code> for the platform's default
+     *            encoding.
+     * @param bufferSize Size of internal buffer to use if the stream turns out to be longer than expected.
+     * @param expectedLength the number of bytes the stream is expected to provide, or a negative value if unknown.
+     * @throws IOException io issue
+     * @since 4.0.4
+     */
+    public static String toString(
+            final InputStream input, final String encoding, final int bufferSize, final long expectedLength)
+            throws IOException {
+        final byte[] bytes = toByteArray(input, bufferSize, expectedLength);
+        return encoding != null ? new String(bytes, encoding) : new String(bytes);
+    }
+
     ///////////////////////////////////////////////////////////////
     // InputStream -> byte[]
 
@@ -333,11 +373,78 @@ public static byte[] toByteArray(final InputStream input) throws IOException {
      * @throws IOException io issue
      */
     public static byte[] toByteArray(final InputStream input, final int bufferSize) throws IOException {
-        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        return toByteArray(input, bufferSize, knownLength(input));
+    }
+
+    /**
+     * @return Get the contents of an <code>InputStream</code> as a <code>byte[]</code>. When
+     * <code>expectedLength</code> is known the result array is allocated once with that size, avoiding the growth and
+     * final copy of an intermediate <code>ByteArrayOutputStream</code>. The length is only a hint: a shorter or longer
+     * stream is still read completely.
+     * @param input to convert
+     * @param bufferSize Size of internal buffer to use if the stream turns out to be longer than expected.
+     * @param expectedLength the number of bytes the stream is expected to provide, or a negative value if unknown.
+     * @throws IOException io issue
+     * @since 4.0.4
+     */
+    public static byte[] toByteArray(final InputStream input, final int bufferSize, final long expectedLength)
+            throws IOException {
+        if (expectedLength < 0 || expectedLength > MAX_ARRAY_SIZE) {
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            copy(input, output, bufferSize);
+            return output.toByteArray();
+        }
+
+        final byte[] bytes = new byte[(int) expectedLength];
+        int offset = 0;
+        int n;
+        while (offset < bytes.length && 0 <= (n = input.read(bytes, offset, bytes.length - offset))) {
+            offset += n;
+        }
+        if (offset < bytes.length) {
+            return Arrays.copyOf(bytes, offset);
+        }
+
+        // the stream was at least as long as expected, check for any remainder
+        final int next = input.read();
+        if (next < 0) {
+            return bytes;
+        }
+        final ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length + bufferSize);
+        output.write(bytes);
+        output.write(next);
         copy(input, output, bufferSize);
         return output.toByteArray();
     }
 
+    /**
+     * Determines how many bytes remain in streams whose size can be known without reading them: byte arrays, files
+     * opened with {@link FileInputStream} and files opened with {@link java.nio.file.Files#newInputStream}, whose
+     * channel based stream reports the remaining size of the file as available.
+     *
+     * @param input the stream
+     * @return the number of remaining bytes, or <code>-1</code> if unknown
+     */
+    private static long knownLength(final InputStream input) {
+        try {
+            if (input instanceof ByteArrayInputStream) {
+                return input.available();
+            }
+            if (input.getClass() == FileInputStream.class) {
+                final FileChannel channel = ((FileInputStream) input).getChannel();
+                return Math.max(0, channel.size() - channel.position());
+            }
+            if (CHANNEL_INPUT_STREAM.equals(input.getClass().getName())) {
+                // only a hint, a stream over a channel which is not a file may report less
+                final int available = input.available();
+                return available > 0 ? available : -1;
+            }
+        } catch (IOException e) {
+            // fall back to unknown length
+        }
+        return -1;
+    }
+
     ///////////////////////////////////////////////////////////////
     // Derived copy methods
     // Reader -> *
@@ -594,9 +701,7 @@ public static String toString(final byte[] input) throws IOException {
      * @throws IOException io issue
      */
     public static String toString(final byte[] input, final int bufferSize) throws IOException {
-        final StringWriter sw = new StringWriter();
-        copy(input, sw, bufferSize);
-        return sw.toString();
+        return new String(input);
     }
 
     /**
@@ -622,9 +727,7 @@ public static String toString(final byte[] input, final String encoding) throws
      * @throws IOException io issue
      */
     public static String toString(final byte[] input, final String encoding, final int bufferSize) throws IOException {
-        final StringWriter sw = new StringWriter();
-        copy(input, sw, encoding, bufferSize);
-        return sw.toString();
+        return new String(input, encoding);
     }
 
     ///////////////////////////////////////////////////////////////
@@ -0,0 +1,377 @@
+package org.codehaus.plexus.util;
+
+/*
+ * Copyright The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A FilterInputStream which interpolates keyword values into encoded text, following the same rules as
+ * {@link InterpolationFilterReader}.
+ * <p>
+ * The content is scanned as bytes: only the keywords are decoded and only the values are encoded, the text around
+ * them is passed through without being decoded. This requires a charset where every ASCII character is the same single
+ * byte which is never part of another character (UTF-8 or the ISO-8859 family for instance), and delimiter tokens made
+ * of ASCII characters. Bytes which are not valid in the charset are passed through unaltered.
+ * </p>
+ *
+ * @see InterpolationFilterReader
+ * @since 4.0.4
+ */
+public class InterpolationFilterInputStream extends FilterInputStream {
+    /** Default begin token. */
+    private static final String DEFAULT_BEGIN_TOKEN = "${";
+
+    /** Default end token. */
+    private static final String DEFAULT_END_TOKEN = "}";
+
+    /** Size of the read ahead buffer. */
+    private static final int BUFFER_SIZE = 8192;
+
+    /** replacement bytes from a token */
+    private byte[] replaceData;
+
+    /** Number of valid bytes in the replacement data. */
+    private int replaceLength;
+
+    /** Index into replacement data */
+    private int replaceIndex = -1;
+
+    /** Index into previous data */
+    private int previousIndex = -1;
+
+    /** Bytes read ahead from the wrapped stream. */
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    /** Index of the next byte to scan in the buffer. */
+    private int bufferPos;
+
+    /** Number of valid bytes in the buffer. */
+    private int bufferEnd;
+
+    /** The token being scanned, reused from one token to the next. */
+    private byte[] key = new byte[64];
+
+    /** Number of valid bytes in the key. */
+    private int keyLength;
+
+    private final Map<?, Object> variables;
+
+    private final Charset charset;
+
+    private final byte[] beginToken;
+
+    private final byte[] endToken;
+
+    /**
+     * Construct a stream to interpolate values enclosed between the given delimiter tokens.
+     *
+     * @param in a stream to be wrapped for interpolation.
+     * @param variables name/value pairs to be interpolated into the stream.
+     * @param beginToken an interpolation target begins with this.
+     * @param endToken an interpolation target ends with this.
+     * @param charset the encoding of the stream
+     * @throws IllegalArgumentException if the charset is not ASCII compatible or a token is not made of ASCII characters
+     */
+    public InterpolationFilterInputStream(
+            InputStream in, Map<?, Object> variables, String beginToken, String endToken, Charset charset) {
+        super(in);
+
+        if (!FileLines.isAsciiCompatible(charset)) {
+            throw new IllegalArgumentException("Charset " + charset + " is not ASCII compatible");
+        }
+
+        this.variables = variables;
+        this.charset = charset;
+        this.beginToken = toAscii(beginToken);
+        this.endToken = toAscii(endToken);
+    }
+
+    /**
+     * Construct a stream using the default interpolation delimiter tokens "${" and "}".
+     *
+     * @param in a stream to be wrapped for interpolation.
+     * @param variables name/value pairs to be interpolated into the stream.
+     * @param charset the encoding of the stream
+     * @throws IllegalArgumentException if the charset is not ASCII compatible
+     */
+    public InterpolationFilterInputStream(InputStream in, Map<String, Object> variables, Charset charset) {
+        this(in, variables, DEFAULT_BEGIN_TOKEN, DEFAULT_END_TOKEN, charset);
+    }
+
+    /**
+     * @param charset the charset
+     * @return <code>true</code> if the content in this charset can be filtered as bytes
+     */
+    public static boolean isSupported(Charset charset) {
+        return FileLines.isAsciiCompatible(charset);
+    }
+
+    private static byte[] toAscii(String token) {
+        byte[] bytes = new byte[token.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            char c = token.charAt(i);
+            if (c >= 0x80) {
+                throw new IllegalArgumentException("Token '" + token + "' is not made of ASCII characters");
+            }
+            bytes[i] = (byte) c;
+        }
+        return bytes;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0L) {
+            return 0L;
+        }
+
+        for (long i = 0; i < n; i++) {
+            if (read() == -1) {
+                return i;
+            }
+        }
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        int pending = hasReplaceData() ? replaceLength - replaceIndex : 0;
+        return pending + bufferEnd - bufferPos;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Not supported, like {@link InterpolationFilterReader#mark(int)}. The reader throws an {@link IOException}, which
+     * {@link InputStream#mark(int)} cannot declare.
+     *
+     * @param readlimit ignored
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public synchronized void mark(int readlimit) {
+        throw new UnsupportedOperationException("mark() not supported");
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("reset() not supported");
+    }
+
+    /**
+     * Reads bytes into a portion of an array. Pending replacement bytes and the spans of input that cannot start a
+     * token are copied in bulk, only the potential tokens go through {@link #read()}.
+     *
+     * @param b Destination buffer.
+     * @param off Offset at which to start storing bytes.
+     * @param len Maximum number of bytes to read.
+     * @return the number of bytes read, or -1 if the end of the stream has been reached
+     * @exception IOException If an I/O error occurs
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        final byte beginTokenStart = beginToken[0];
+        int i = 0;
+        while (i < len) {
+            if (hasReplaceData()) {
+                int n = Math.min(len - i, replaceLength - replaceIndex);
+                System.arraycopy(replaceData, replaceIndex, b, off + i, n);
+                i += n;
+                replaceIndex += n;
+                if (replaceIndex >= replaceLength) {
+                    replaceIndex = -1;
+                }
+                continue;
+            }
+
+            if (!hasPreviousData()) {
+                if (bufferPos >= bufferEnd && !fillBuffer()) {
+                    break;
+                }
+                // copy everything up to the next possible begin token at once
+                int start = bufferPos;
+                int limit = Math.min(bufferEnd, start + len - i);
+                int pos = start;
+                while (pos < limit && buffer[pos] != beginTokenStart) {
+                    pos++;
+                }
+                if (pos > start) {
+                    System.arraycopy(buffer, start, b, off + i, pos - start);
+                    i += pos - start;
+                    bufferPos = pos;
+                    continue;
+                }
+            }
+
+            int ch = read();
+            if (ch == -1) {
+                break;
+            }
+            b[off + i++] = (byte) ch;
+        }
+        return i == 0 && len > 0 ? -1 : i;
+    }
+
+    /**
+     * Returns the next byte in the filtered stream, replacing tokens from the original stream.
+     *
+     * @return the next byte in the resulting stream, or -1 if the end of the resulting stream has been reached
+     * @exception IOException if the underlying stream throws an IOException during reading
+     */
+    @Override
+    public int read() throws IOException {
+        while (true) {
+            if (hasReplaceData()) {
+                int ch = replaceData[replaceIndex++] & 0xff;
+                if (replaceIndex >= replaceLength) {
+                    replaceIndex = -1;
+                }
+                return ch;
+            }
+
+            int ch = nextByte();
+
+            if (ch != beginToken[0]) {
+                return ch;
+            }
+
+            keyLength = 0;
+
+            int beginTokenMatchPos = 1;
+
+            do {
+                ch = nextByte();
+                if (ch != -1) {
+                    appendKey(ch);
+
+                    if ((beginTokenMatchPos < beginToken.length) && (ch != beginToken[beginTokenMatchPos++])) {
+                        ch = -1; // not really EOF but to trigger code below
+                        break;
+                    }
+                } else {
+                    break;
+                }
+            } while (ch != endToken[0]);
+
+            // now test endToken
+            if (ch != -1 && endToken.length > 1) {
+                int endTokenMatchPos = 1;
+
+                do {
+                    ch = nextByte();
+
+                    if (ch != -1) {
+                        appendKey(ch);
+
+                        if (ch != endToken[endTokenMatchPos++]) {
+                            ch = -1; // not really EOF but to trigger code below
+                            break;
+                        }
+
+                    } else {
+                        break;
+                    }
+                } while (endTokenMatchPos < endToken.length);
+            }
+
+            // nothing left to read, or not a token: let the scanned bytes pass through
+            if (ch == -1) {
+                setReplaceData(key, keyLength);
+                return beginToken[0];
+            }
+
+            String variableKey = new String(
+                    key, beginToken.length - 1, keyLength - endToken.length - (beginToken.length - 1), charset);
+
+            Object o = variables.get(variableKey);
+            if (o != null) {
+                String value = o.toString();
+                if (value.length() != 0) {
+                    byte[] encoded = value.getBytes(charset);
+                    setReplaceData(encoded, encoded.length);
+                }
+                // loop to return the first replacement byte, or the byte following the token
+            } else {
+                previousIndex = 0;
+                setReplaceData(key, keyLength - endToken.length);
+                return beginToken[0];
+            }
+        }
+    }
+
+    private void appendKey(int ch) {
+        if (keyLength == key.length) {
+            key = Arrays.copyOf(key, key.length * 2);
+        }
+        key[keyLength++] = (byte) ch;
+    }
+
+    /**
+     * Copies the data, the key buffer is reused by the next token.
+     */
+    private void setReplaceData(byte[] data, int length) {
+        if (replaceData == null || replaceData.length < length) {
+            replaceData = new byte[Math.max(length, 64)];
+        }
+        System.arraycopy(data, 0, replaceData, 0, length);
+        replaceLength = length;
+        replaceIndex = 0;
+    }
+
+    private boolean hasReplaceData() {
+        return replaceIndex != -1 && replaceIndex < replaceLength;
+    }
+
+    private boolean hasPreviousData() {
+        return previousIndex != -1 && previousIndex < endToken.length;
+    }
+
+    /**
+     * @return the next byte to scan: the end token of an unresolved expression is scanned again before reading
+     *         further from the buffered input
+     * @throws IOException if the underlying stream throws an IOException during reading
+     */
+    private int nextByte() throws IOException {
+        if (hasPreviousData()) {
+            return endToken[previousIndex++];
+        }
+        if (bufferPos >= bufferEnd && !fillBuffer()) {
+            return -1;
+        }
+        return buffer[bufferPos++] & 0xff;
+    }
+
+    private boolean fillBuffer() throws IOException {
+        int n;
+        do {
+            n = in.read(buffer, 0, buffer.length);
+        } while (n == 0);
+        if (n < 0) {
+            return false;
+        }
+        bufferPos = 0;
+        bufferEnd = n;
+        return true;
+    }
+}
@@ -88,6 +88,18 @@ public class InterpolationFilterReader extends FilterReader {
     /** Index into previous data */
     private int previousIndex = -1;
 
+    /** Characters read ahead from the wrapped reader. */
+    private final char[] buffer = new char[BUFFER_SIZE];
+
+    /** Index of the next character to scan in the buffer. */
+    private int bufferPos;
+
+    /** Number of valid characters in the buffer. */
+    private int bufferEnd;
+
+    /** The token being scanned, reused from one token to the next. */
+    private final StringBuilder key = new StringBuilder();
+
     /** Hashtable to hold the replacee-replacer pairs (String to String). */
     private Map<?, Object> variables = new HashMap<Object, Object>();
 
@@ -109,6 +121,9 @@ public class InterpolationFilterReader extends FilterReader {
     /** Default end token. */
     private static final String DEFAULT_END_TOKEN = "}";
 
+    /** Size of the read ahead buffer. */
+    private static final int BUFFER_SIZE = 8192;
+
     /**
      * Construct a Reader to interpolate values enclosed between the given delimiter tokens.
      *
@@ -161,9 +176,44 @@ public long skip(long n) throws IOException {
         return n;
     }
 
+    /**
+     * Tells whether this stream is ready to be read.
+     *
+     * @return <code>true</code> if buffered or replacement characters are pending, or the wrapped reader is ready
+     * @exception IOException If an I/O error occurs
+     */
+    @Override
+    public boolean ready() throws IOException {
+        return hasReplaceData() || hasPreviousData() || bufferPos < bufferEnd || in.ready();
+    }
+
+    /**
+     * Mark is not supported, the underlying stream is read ahead into an internal buffer.
+     *
+     * @return <code>false</code>
+     */
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void mark(int readAheadLimit) throws IOException {
+        throw new IOException("mark() not supported");
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("reset() not supported");
+    }
+
     /**
      * Reads characters into a portion of an array. This method will block until some input is available, an I/O error
      * occurs, or the end of the stream is reached.
+     * <p>
+     * Pending replacement text and the spans of input that cannot start a token are copied in bulk, only the potential
+     * tokens go through {@link #read()}.
+     * </p>
      *
      * @param cbuf Destination buffer to write characters to. Must not be <code>null</code>.
      * @param off Offset at which to start storing characters.
@@ -173,18 +223,46 @@ public long skip(long n) throws IOException {
      */
     @Override
     public int read(char cbuf[], int off, int len) throws IOException {
-        for (int i = 0; i < len; i++) {
+        final char beginTokenStart = beginToken.charAt(0);
+        int i = 0;
+        while (i < len) {
+            if (hasReplaceData()) {
+                int n = Math.min(len - i, replaceData.length() - replaceIndex);
+                replaceData.getChars(replaceIndex, replaceIndex + n, cbuf, off + i);
+                i += n;
+                replaceIndex += n;
+                if (replaceIndex >= replaceData.length()) {
+                    replaceIndex = -1;
+                }
+                continue;
+            }
+
+            if (!hasPreviousData()) {
+                if (bufferPos >= bufferEnd && !fillBuffer()) {
+                    break;
+                }
+                // copy everything up to the next possible begin token at once
+                int start = bufferPos;
+                int limit = Math.min(bufferEnd, start + len - i);
+                int pos = start;
+                while (pos < limit && buffer[pos] != beginTokenStart) {
+                    pos++;
+                }
+                if (pos > start) {
+                    System.arraycopy(buffer, start, cbuf, off + i, pos - start);
+                    i += pos - start;
+                    bufferPos = pos;
+                    continue;
+                }
+            }
+
             int ch = read();
             if (ch == -1) {
-                if (i == 0) {
-                    return -1;
-                } else {
-                    return i;
-                }
+                break;
             }
-            cbuf[off + i] = (char) ch;
+            cbuf[off + i++] = (char) ch;
         }
-        return len;
+        return i == 0 && len > 0 ? -1 : i;
     }
 
     /**
@@ -195,32 +273,27 @@ public int read(char cbuf[], int off, int len) throws IOException {
      */
     @Override
     public int read() throws IOException {
-        if (replaceIndex != -1 && replaceIndex < replaceData.length()) {
-            int ch = replaceData.charAt(replaceIndex++);
-            if (replaceIndex >= replaceData.length()) {
-                replaceIndex = -1;
+        while (true) {
+            if (hasReplaceData()) {
+                int ch = replaceData.charAt(replaceIndex++);
+                if (replaceIndex >= replaceData.length()) {
+                    replaceIndex = -1;
+                }
+                return ch;
             }
-            return ch;
-        }
 
-        int ch;
-        if (previousIndex != -1 && previousIndex < endTokenLength) {
-            ch = endToken.charAt(previousIndex++);
-        } else {
-            ch = in.read();
-        }
+            int ch = nextChar();
 
-        if (ch == beginToken.charAt(0)) {
-            StringBuilder key = new StringBuilder();
+            if (ch != beginToken.charAt(0)) {
+                return ch;
+            }
+
+            key.setLength(0);
 
             int beginTokenMatchPos = 1;
 
             do {
-                if (previousIndex != -1 && previousIndex < endTokenLength) {
-                    ch = endToken.charAt(previousIndex++);
-                } else {
-                    ch = in.read();
-                }
+                ch = nextChar();
                 if (ch != -1) {
                     key.append((char) ch);
 
@@ -238,11 +311,7 @@ public int read() throws IOException {
                 int endTokenMatchPos = 1;
 
                 do {
-                    if (previousIndex != -1 && previousIndex < endTokenLength) {
-                        ch = endToken.charAt(previousIndex++);
-                    } else {
-                        ch = in.read();
-                    }
+                    ch = nextChar();
 
                     if (ch != -1) {
                         key.append((char) ch);
@@ -276,7 +345,7 @@ public int read() throws IOException {
                     replaceData = value;
                     replaceIndex = 0;
                 }
-                return read();
+                // loop to return the first replacement character, or the character following the token
             } else {
                 previousIndex = 0;
                 replaceData = key.substring(0, key.length() - endTokenLength);
@@ -284,7 +353,41 @@ public int read() throws IOException {
                 return beginToken.charAt(0);
             }
         }
+    }
+
+    private boolean hasReplaceData() {
+        return replaceIndex != -1 && replaceIndex < replaceData.length();
+    }
+
+    private boolean hasPreviousData() {
+        return previousIndex != -1 && previousIndex < endTokenLength;
+    }
+
+    /**
+     * @return the next character to scan: the end token of an unresolved expression is scanned again before reading
+     *         further from the buffered input
+     * @throws IOException if the underlying stream throws an IOException during reading
+     */
+    private int nextChar() throws IOException {
+        if (hasPreviousData()) {
+            return endToken.charAt(previousIndex++);
+        }
+        if (bufferPos >= bufferEnd && !fillBuffer()) {
+            return -1;
+        }
+        return buffer[bufferPos++];
+    }
 
-        return ch;
+    private boolean fillBuffer() throws IOException {
+        int n;
+        do {
+            n = in.read(buffer, 0, buffer.length);
+        } while (n == 0);
+        if (n < 0) {
+            return false;
+        }
+        bufferPos = 0;
+        bufferEnd = n;
+        return true;
     }
 }
@@ -0,0 +1,280 @@
+package org.codehaus.plexus.util;
+
+/*
+ * Copyright The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A text parsed once into literal and expression segments, which can then be rendered against any number of variable
+ * maps without being scanned again. Rendering gives the same result as filtering the text through an
+ * {@link InterpolationFilterReader} with the same delimiters:
+ * <ul>
+ * <li>an expression whose name is found in the map is replaced by the value (removed if the value is empty);</li>
+ * <li>an expression whose name is not found is passed through unaltered, its end delimiter may then begin another
+ * expression;</li>
+ * <li>text that is not a complete expression is passed through unaltered.</li>
+ * </ul>
+ * <p>
+ * Templates are immutable and thread safe. {@link #compile(String, String, String)} keeps the most recently used
+ * templates of short texts in a bounded cache, so filtering the same content again reuses its parsed form.
+ * </p>
+ *
+ * @since 4.0.4
+ */
+public final class InterpolationTemplate {
+    /** Default begin token. */
+    private static final String DEFAULT_BEGIN_TOKEN = "${";
+
+    /** Default end token. */
+    private static final String DEFAULT_END_TOKEN = "}";
+
+    /** Maximum number of templates kept by {@link #compile(String, String, String)}. */
+    private static final int CACHE_SIZE = 128;
+
+    /**
+     * Maximum length of a text cached by {@link #compile(String, String, String)}, which bounds the cache to
+     * <code>CACHE_SIZE * MAX_CACHED_LENGTH</code> characters. Longer texts are parsed on every call, as hashing and
+     * comparing them would cost about as much as parsing them.
+     */
+    private static final int MAX_CACHED_LENGTH = 16 * 1024;
+
+    private static final Map<CacheKey, InterpolationTemplate> CACHE =
+            Collections.synchronizedMap(new LinkedHashMap<CacheKey, InterpolationTemplate>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<CacheKey, InterpolationTemplate> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
+    private final String text;
+
+    /** Positions of the first character of the begin token, in ascending order. */
+    private final int[] starts;
+
+    /** Variable names of the expressions at each start, <code>null</code> if there is no expression. */
+    private final String[] keys;
+
+    /** Position of the end token of each expression. */
+    private final int[] endTokenStarts;
+
+    /** Position following each expression, or following the text passed through when there is no expression. */
+    private final int[] resumes;
+
+    private InterpolationTemplate(String text, String beginToken, String endToken) {
+        this.text = text;
+
+        List<Integer> positions = new ArrayList<>();
+        for (int i = text.indexOf(beginToken.charAt(0)); i >= 0; i = text.indexOf(beginToken.charAt(0), i + 1)) {
+            positions.add(i);
+        }
+
+        final int count = positions.size();
+        starts = new int[count];
+        keys = new String[count];
+        endTokenStarts = new int[count];
+        resumes = new int[count];
+        for (int t = 0; t < count; t++) {
+            starts[t] = positions.get(t);
+            parse(t, beginToken, endToken);
+        }
+    }
+
+    /**
+     * Parses a possible expression at <code>starts[t]</code> following the rules of
+     * {@link InterpolationFilterReader#read()}.
+     */
+    private void parse(int t, String beginToken, String endToken) {
+        final int length = text.length();
+        int pos = starts[t] + 1;
+        int beginTokenMatchPos = 1;
+
+        char ch;
+        do {
+            if (pos >= length) {
+                resumes[t] = length;
+                return;
+            }
+            ch = text.charAt(pos++);
+            if (beginTokenMatchPos < beginToken.length() && ch != beginToken.charAt(beginTokenMatchPos++)) {
+                resumes[t] = pos;
+                return;
+            }
+        } while (ch != endToken.charAt(0));
+
+        for (int endTokenMatchPos = 1; endTokenMatchPos < endToken.length(); endTokenMatchPos++) {
+            if (pos >= length) {
+                resumes[t] = length;
+                return;
+            }
+            if (text.charAt(pos++) != endToken.charAt(endTokenMatchPos)) {
+                resumes[t] = pos;
+                return;
+            }
+        }
+
+        final int keyStart = starts[t] + beginToken.length();
+        final int endTokenStart = pos - endToken.length();
+        resumes[t] = pos;
+        if (keyStart <= endTokenStart) {
+            keys[t] = text.substring(keyStart, endTokenStart);
+            endTokenStarts[t] = endTokenStart;
+        }
+    }
+
+    /**
+     * Compiles a text using the default delimiter tokens "${" and "}".
+     *
+     * @param text the text to parse
+     * @return the template, possibly shared with previous callers
+     */
+    public static InterpolationTemplate compile(String text) {
+        return compile(text, DEFAULT_BEGIN_TOKEN, DEFAULT_END_TOKEN);
+    }
+
+    /**
+     * Compiles a text, reusing the template of a previous call with the same text and delimiters if it is still
+     * cached. Only texts of up to 16K characters are cached.
+     *
+     * @param text the text to parse
+     * @param beginToken an expression begins with this
+     * @param endToken an expression ends with this
+     * @return the template, possibly shared with previous callers
+     */
+    public static InterpolationTemplate compile(String text, String beginToken, String endToken) {
+        if (text.length() > MAX_CACHED_LENGTH) {
+            return new InterpolationTemplate(text, beginToken, endToken);
+        }
+
+        CacheKey key = new CacheKey(text, beginToken, endToken);
+        InterpolationTemplate template = CACHE.get(key);
+        if (template == null) {
+            template = new InterpolationTemplate(text, beginToken, endToken);
+            CACHE.put(key, template);
+        }
+        return template;
+    }
+
+    /**
+     * Compiles the whole content of a Reader.
+     *
+     * @param reader the content to parse, not closed
+     * @param beginToken an expression begins with this
+     * @param endToken an expression ends with this
+     * @return the template, possibly shared with previous callers
+     * @throws IOException if the content cannot be read
+     */
+    public static InterpolationTemplate compile(Reader reader, String beginToken, String endToken) throws IOException {
+        return compile(IOUtil.toString(reader), beginToken, endToken);
+    }
+
+    /**
+     * @param variables name/value pairs to be interpolated
+     * @return the text with the expressions replaced
+     */
+    public String render(Map<?, ?> variables) {
+        StringBuilder sb = new StringBuilder(text.length());
+        try {
+            render(variables, sb);
+        } catch (IOException e) {
+            // not thrown by StringBuilder
+            throw new IllegalStateException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param variables name/value pairs to be interpolated
+     * @param out where to append the text with the expressions replaced
+     * @throws IOException if appending fails
+     */
+    public void render(Map<?, ?> variables, Appendable out) throws IOException {
+        int pos = 0;
+        int t = 0;
+        while (true) {
+            while (t < starts.length && starts[t] < pos) {
+                t++;
+            }
+            if (t == starts.length) {
+                out.append(text, pos, text.length());
+                return;
+            }
+
+            final int start = starts[t];
+            out.append(text, pos, start);
+
+            Object value = keys[t] != null ? variables.get(keys[t]) : null;
+            if (value != null) {
+                out.append(value.toString());
+                pos = resumes[t];
+            } else if (keys[t] != null) {
+                // the end token is scanned again, it may begin another expression
+                out.append(text, start, endTokenStarts[t]);
+                pos = endTokenStarts[t];
+            } else {
+                out.append(text, start, resumes[t]);
+                pos = resumes[t];
+            }
+        }
+    }
+
+    /**
+     * @return the text this template was compiled from
+     */
+    public String getText() {
+        return text;
+    }
+
+    private static final class CacheKey {
+        private final String text;
+
+        private final String beginToken;
+
+        private final String endToken;
+
+        private final int hash;
+
+        CacheKey(String text, String beginToken, String endToken) {
+            this.text = text;
+            this.beginToken = beginToken;
+            this.endToken = endToken;
+            this.hash = 31 * (31 * text.hashCode() + beginToken.hashCode()) + endToken.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) obj;
+            return hash == other.hash
+                    && beginToken.equals(other.beginToken)
+                    && endToken.equals(other.endToken)
+                    && text.equals(other.text);
+        }
+    }
+}
@@ -21,6 +21,7 @@
 import java.io.PushbackReader;
 import java.io.Reader;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -49,6 +50,11 @@
  * specified to the constructor. An escaped token is passed through as written, with the escape sequence removed. This
  * allows things which would look like tokens to be read literally rather than interpolated.</p>
  *
+ * <p>The value of each expression is evaluated once and remembered for the following lines. The memo can be shared by
+ * several readers interpolating the same context, see
+ * {@link #LineOrientedInterpolatingReader(Reader, Map, String, String, String, Map)}; call
+ * {@link #clearExpressionCache()} or {@link #invalidateExpression(String)} when the context changes.</p>
+ *
  * @author jdcasey Created on Feb 3, 2005
  * @see InterpolationFilterReader
  */
@@ -77,9 +83,21 @@ public class LineOrientedInterpolatingReader extends FilterReader {
 
     private final Reflector reflector;
 
+    private final Map<String, String> expressionCache;
+
+    /** The expressions whose root is not found in the context, remembered apart from the values. */
+    private final Set<String> unresolvedExpressions = new HashSet<>();
+
+    private final StringBuilder lineBuffer = new StringBuilder(40); // half of the "normal" line maxsize
+
+    private final Set<String> expressions = new HashSet<>();
+
     private int lineIdx = -1;
 
-    private String line;
+    /**
+     * The current line: either {@link #lineBuffer} when it contains no expression, or the interpolated String.
+     */
+    private CharSequence line;
 
     /**
      * Construct an interpolating Reader, specifying token delimiters and the escape sequence.
@@ -92,6 +110,30 @@ public class LineOrientedInterpolatingReader extends FilterReader {
      */
     public LineOrientedInterpolatingReader(
             Reader reader, Map<String, ?> context, String startDelim, String endDelim, String escapeSeq) {
+        this(reader, context, startDelim, endDelim, escapeSeq, null);
+    }
+
+    /**
+     * Construct an interpolating Reader remembering the evaluated expressions in the given map. The map may be shared
+     * by readers interpolating the same context, it has to be thread safe if they are used concurrently. Only
+     * resolved expressions are put in the map, each reader remembers the unresolved ones on its own.
+     *
+     * @param reader the Reader to be filtered.
+     * @param context keyword/value pairs for interpolation.
+     * @param startDelim character sequence which (possibly) begins a token.
+     * @param endDelim character sequence which ends a token.
+     * @param escapeSeq escape sequence
+     * @param expressionCache expression (without delimiters) to evaluated String value memo, <code>null</code> for a
+     *            memo private to this reader
+     * @since 4.0.4
+     */
+    public LineOrientedInterpolatingReader(
+            Reader reader,
+            Map<String, ?> context,
+            String startDelim,
+            String endDelim,
+            String escapeSeq,
+            Map<String, String> expressionCache) {
         super(reader);
 
         this.startDelim = startDelim;
@@ -107,6 +149,8 @@ public LineOrientedInterpolatingReader(
 
         this.reflector = new Reflector();
 
+        this.expressionCache = expressionCache != null ? expressionCache : new HashMap<String, String>();
+
         if (reader instanceof PushbackReader) {
             this.pushbackReader = (PushbackReader) reader;
         } else {
@@ -155,15 +199,23 @@ public int read() throws IOException {
     public int read(char[] cbuf, int off, int len) throws IOException {
         int fillCount = 0;
 
-        for (int i = off; i < off + len; i++) {
-            int next = read();
-            if (next > -1) {
-                cbuf[i] = (char) next;
-            } else {
-                break;
+        while (fillCount < len) {
+            if (line == null || lineIdx >= line.length()) {
+                readAndInterpolateLine();
+
+                if (line == null || lineIdx >= line.length()) {
+                    break;
+                }
             }
 
-            fillCount++;
+            int count = Math.min(len - fillCount, line.length() - lineIdx);
+            if (line instanceof String) {
+                ((String) line).getChars(lineIdx, lineIdx + count, cbuf, off + fillCount);
+            } else {
+                ((StringBuilder) line).getChars(lineIdx, lineIdx + count, cbuf, off + fillCount);
+            }
+            lineIdx += count;
+            fillCount += count;
         }
 
         if (fillCount == 0) {
@@ -173,6 +225,27 @@ public int read(char[] cbuf, int off, int len) throws IOException {
         return fillCount;
     }
 
+    /**
+     * Forgets all the evaluated expressions, so that they are evaluated again against the context.
+     *
+     * @since 4.0.4
+     */
+    public void clearExpressionCache() {
+        expressionCache.clear();
+        unresolvedExpressions.clear();
+    }
+
+    /**
+     * Forgets the evaluated value of an expression, so that it is evaluated again against the context.
+     *
+     * @param expression the expression without delimiters, e.g. <code>project.version</code>
+     * @since 4.0.4
+     */
+    public void invalidateExpression(String expression) {
+        expressionCache.remove(expression);
+        unresolvedExpressions.remove(expression);
+    }
+
     @Override
     public long skip(long n) throws IOException {
         long skipCount = 0;
@@ -191,19 +264,23 @@ public long skip(long n) throws IOException {
     }
 
     private void readAndInterpolateLine() throws IOException {
-        String rawLine = readLine();
+        if (readLine()) {
+            parseForExpressions(lineBuffer);
 
-        if (rawLine != null) {
-            Set<String> expressions = parseForExpressions(rawLine);
+            if (expressions.isEmpty()) {
+                // nothing to replace, the line is served from the buffer
+                line = lineBuffer;
+                lineIdx = 0;
+                return;
+            }
 
-            Map<String, Object> evaluatedExpressions = evaluateExpressions(expressions);
+            Map<String, String> evaluatedExpressions = evaluateExpressions(expressions);
 
-            String interpolated = replaceWithInterpolatedValues(rawLine, evaluatedExpressions);
+            String interpolated = replaceWithInterpolatedValues(lineBuffer.toString(), evaluatedExpressions);
 
-            if (interpolated != null && interpolated.length() > 0) {
-                line = interpolated;
-                lineIdx = 0;
-            }
+            // an empty line ends the current read, the next one goes on with the following line
+            line = interpolated;
+            lineIdx = 0;
         } else {
             line = null;
             lineIdx = -1;
@@ -211,11 +288,11 @@ private void readAndInterpolateLine() throws IOException {
     }
 
     /*
-     * Read one line from the wrapped Reader. A line is a sequence of characters ending in CRLF, CR, or LF. The
-     * terminating character(s) will be included in the returned line.
+     * Read one line from the wrapped Reader into lineBuffer. A line is a sequence of characters ending in CRLF, CR,
+     * or LF. The terminating character(s) will be included in the line.
      */
-    private String readLine() throws IOException {
-        StringBuilder lineBuffer = new StringBuilder(40); // half of the "normal" line maxsize
+    private boolean readLine() throws IOException {
+        lineBuffer.setLength(0);
         int next;
 
         boolean lastWasCR = false;
@@ -236,68 +313,77 @@ private String readLine() throws IOException {
             }
         }
 
-        if (lineBuffer.length() < 1) {
-            return null;
-        } else {
-            return lineBuffer.toString();
-        }
+        return lineBuffer.length() > 0;
     }
 
-    private String replaceWithInterpolatedValues(String rawLine, Map<String, Object> evaluatedExpressions) {
+    private String replaceWithInterpolatedValues(String rawLine, Map<String, String> evaluatedExpressions) {
         String result = rawLine;
 
-        for (Object o : evaluatedExpressions.entrySet()) {
-            Map.Entry entry = (Map.Entry) o;
-
-            String expression = (String) entry.getKey();
-
-            String value = String.valueOf(entry.getValue());
-
-            result = findAndReplaceUnlessEscaped(result, expression, value);
+        for (Map.Entry<String, String> entry : evaluatedExpressions.entrySet()) {
+            result = findAndReplaceUnlessEscaped(result, entry.getKey(), entry.getValue());
         }
 
         return result;
     }
 
-    private Map<String, Object> evaluateExpressions(Set<String> expressions) {
-        Map<String, Object> evaluated = new TreeMap<String, Object>();
-
-        for (Object expression : expressions) {
-            String rawExpression = (String) expression;
+    private Map<String, String> evaluateExpressions(Set<String> expressions) {
+        Map<String, String> evaluated = new TreeMap<String, String>();
 
+        for (String rawExpression : expressions) {
             String realExpression =
                     rawExpression.substring(startDelim.length(), rawExpression.length() - endDelim.length());
 
-            String[] parts = realExpression.split("\\.");
-            if (parts.length > 0) {
-                Object value = context.get(parts[0]);
-
+            String value = expressionCache.get(realExpression);
+            if (value == null && !unresolvedExpressions.contains(realExpression)) {
+                value = evaluateExpression(realExpression);
                 if (value != null) {
-                    for (int i = 1; i < parts.length; i++) {
-                        try {
-                            value = reflector.getObjectProperty(value, parts[i]);
+                    expressionCache.put(realExpression, value);
+                } else {
+                    unresolvedExpressions.add(realExpression);
+                }
+            }
+
+            if (value != null) {
+                evaluated.put(rawExpression, value);
+            }
+        }
+
+        return evaluated;
+    }
 
-                            if (value == null) {
-                                break;
-                            }
-                        } catch (ReflectorException e) {
-                            // TODO: Fix this! It should report, but not interrupt.
-                            e.printStackTrace();
+    /**
+     * @return the String value of the expression, <code>null</code> if its root is not found in the context
+     */
+    private String evaluateExpression(String realExpression) {
+        String[] parts = realExpression.split("\\.");
+        if (parts.length > 0) {
+            Object value = context.get(parts[0]);
 
+            if (value != null) {
+                for (int i = 1; i < parts.length; i++) {
+                    try {
+                        value = reflector.getObjectProperty(value, parts[i]);
+
+                        if (value == null) {
                             break;
                         }
-                    }
+                    } catch (ReflectorException e) {
+                        // TODO: Fix this! It should report, but not interrupt.
+                        e.printStackTrace();
 
-                    evaluated.put(rawExpression, value);
+                        break;
+                    }
                 }
+
+                return String.valueOf(value);
             }
         }
 
-        return evaluated;
+        return null;
     }
 
-    private Set<String> parseForExpressions(String rawLine) {
-        Set<String> expressions = new HashSet<String>();
+    private void parseForExpressions(StringBuilder rawLine) {
+        expressions.clear();
 
         if (rawLine != null) {
             int placeholder = -1;
@@ -330,11 +416,9 @@ private Set<String> parseForExpressions(String rawLine) {
                 placeholder = end + 1;
             } while (placeholder < rawLine.length() - minExpressionSize);
         }
-
-        return expressions;
     }
 
-    private int findDelimiter(String rawLine, String delimiter, int lastPos) {
+    private int findDelimiter(StringBuilder rawLine, String delimiter, int lastPos) {
         int placeholder = lastPos;
 
         int position;
@@ -17,9 +17,6 @@
  */
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.StringTokenizer;
 
 /**
  * <p>Describes a match target for SelectorUtils.</p>
@@ -108,19 +105,17 @@ public boolean startsWith(String string) {
     }
 
     public static String[] tokenizePathToString(String path, String separator) {
-        List<String> ret = new ArrayList<String>();
-        StringTokenizer st = new StringTokenizer(path, separator);
-        while (st.hasMoreTokens()) {
-            ret.add(st.nextToken());
-        }
-        return ret.toArray(new String[0]);
+        return StringUtils.split(path, separator);
     }
 
     static char[][] tokenizePathToCharArray(String path, String separator) {
-        String[] tokenizedName = tokenizePathToString(path, separator);
-        char[][] tokenizedNameChar = new char[tokenizedName.length][];
-        for (int i = 0; i < tokenizedName.length; i++) {
-            tokenizedNameChar[i] = tokenizedName[i].toCharArray();
+        int[] offsets = StringUtils.splitOffsets(path, separator, -1);
+        char[][] tokenizedNameChar = new char[offsets.length / 2][];
+        for (int i = 0; i < tokenizedNameChar.length; i++) {
+            int start = offsets[2 * i];
+            int end = offsets[2 * i + 1];
+            tokenizedNameChar[i] = new char[end - start];
+            path.getChars(start, end, tokenizedNameChar[i], 0);
         }
         return tokenizedNameChar;
     }
@@ -0,0 +1,367 @@
+package org.codehaus.plexus.util;
+
+/*
+ * Copyright The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A FilterReader which interpolates keyword values enclosed between any of several pairs of delimiter tokens, such as
+ * <code>${...}</code> and <code>@...@</code>, in a single pass. This replaces a chain of
+ * {@link InterpolationFilterReader}s, one per pair of tokens.
+ * <p>
+ * The begin tokens are searched with an Aho-Corasick automaton. At the first position where a begin token starts (the
+ * longest one if several start there), the keyword extends up to the first occurrence of the first character of the
+ * matching end token:
+ * </p>
+ * <ul>
+ * <li>if the rest of the end token follows and the keyword is found in the Map, the delimiters and the keyword are
+ * replaced by the keyword's value, which is not scanned again;</li>
+ * <li>otherwise the first character of the begin token is passed through and scanning resumes with the next
+ * character, so that an expression may be found within an unresolved one, e.g. <code>${name}</code> in
+ * <code>@ ${name} @</code>.</li>
+ * </ul>
+ * <p>
+ * A keyword is at most {@link #MAX_KEY_LENGTH} characters long: a begin token not followed by its end token within
+ * that many characters is passed through, so the read ahead buffer stays bounded.
+ * </p>
+ * <p>
+ * Unlike chained readers, a value is never interpolated again by the other pairs of tokens.
+ * </p>
+ *
+ * @see InterpolationFilterReader
+ * @since 4.0.4
+ */
+public class MultiTokenInterpolationFilterReader extends FilterReader {
+    /** Initial size of the read ahead buffer. */
+    private static final int BUFFER_SIZE = 8192;
+
+    /** Number of characters without any begin token which are passed through at once. */
+    private static final int LITERAL_CHUNK = 4096;
+
+    /**
+     * Maximum number of characters between a begin token and its end token.
+     */
+    public static final int MAX_KEY_LENGTH = 8192;
+
+    private final Map<?, Object> variables;
+
+    private final String[] beginTokens;
+
+    private final String[] endTokens;
+
+    private final int maxBeginTokenLength;
+
+    /** Locates the begin tokens. */
+    private final AhoCorasick automaton;
+
+    /**
+     * Stream offset of the last occurrence found of the first character of each end token, -1 if none. Scanning
+     * positions only move forward, so an occurrence after the current position is the next one.
+     */
+    private final long[] endTokenCharAt;
+
+    /**
+     * Stream offset up to which the first character of each end token has been searched, no occurrence lies between
+     * {@link #endTokenCharAt} and this offset.
+     */
+    private final long[] endTokenSearchedTo;
+
+    /** Characters read ahead from the wrapped reader. */
+    private char[] buffer = new char[BUFFER_SIZE];
+
+    /** Stream offset of the first character of the buffer. */
+    private long bufferOffset;
+
+    /** Index of the next character to pass through or scan in the buffer. */
+    private int pos;
+
+    /** Number of valid characters in the buffer. */
+    private int limit;
+
+    /** Characters before this index in the buffer have been scanned and are passed through unaltered. */
+    private int literalEnd;
+
+    private boolean eof;
+
+    /** replacement text from a token */
+    private String replaceData;
+
+    /** Index into replacement data */
+    private int replaceIndex;
+
+    /**
+     * Construct a Reader to interpolate values enclosed between any of the given pairs of delimiter tokens.
+     *
+     * @param in a Reader to be wrapped for interpolation.
+     * @param variables name/value pairs to be interpolated into the character stream.
+     * @param beginTokens an interpolation target begins with one of these.
+     * @param endTokens an interpolation target ends with the token at the same index as its begin token.
+     * @throws IllegalArgumentException if the tokens are not paired, empty or if a begin token is repeated
+     */
+    public MultiTokenInterpolationFilterReader(
+            Reader in, Map<?, Object> variables, String[] beginTokens, String[] endTokens) {
+        super(in);
+
+        if (beginTokens.length == 0 || beginTokens.length != endTokens.length) {
+            throw new IllegalArgumentException("Begin and end tokens must be paired");
+        }
+
+        this.variables = variables;
+        this.beginTokens = beginTokens.clone();
+        this.endTokens = endTokens.clone();
+        this.endTokenCharAt = new long[beginTokens.length];
+        this.endTokenSearchedTo = new long[beginTokens.length];
+        Arrays.fill(endTokenCharAt, -1L);
+
+        for (int t = 0; t < beginTokens.length; t++) {
+            if (StringUtils.isEmpty(beginTokens[t]) || StringUtils.isEmpty(endTokens[t])) {
+                throw new IllegalArgumentException("Tokens must not be empty");
+            }
+        }
+        this.automaton = new AhoCorasick(beginTokens);
+        this.maxBeginTokenLength = automaton.maxLength();
+    }
+
+    /**
+     * Skips characters. This method will block until some characters are available, an I/O error occurs, or the end of
+     * the stream is reached.
+     *
+     * @param n The number of characters to skip
+     * @return the number of characters actually skipped
+     * @exception IllegalArgumentException If <code>n</code> is negative.
+     * @exception IOException If an I/O error occurs
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        if (n < 0L) {
+            throw new IllegalArgumentException("skip value is negative");
+        }
+
+        for (long i = 0; i < n; i++) {
+            if (read() == -1) {
+                return i;
+            }
+        }
+        return n;
+    }
+
+    @Override
+    public boolean ready() throws IOException {
+        return hasReplaceData() || pos < limit || in.ready();
+    }
+
+    /**
+     * Mark is not supported, the underlying stream is read ahead into an internal buffer.
+     *
+     * @return <code>false</code>
+     */
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void mark(int readAheadLimit) throws IOException {
+        throw new IOException("mark() not supported");
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("reset() not supported");
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        int i = 0;
+        while (i < len) {
+            if (hasReplaceData()) {
+                int n = Math.min(len - i, replaceData.length() - replaceIndex);
+                replaceData.getChars(replaceIndex, replaceIndex + n, cbuf, off + i);
+                replaceIndex += n;
+                i += n;
+            } else if (pos < literalEnd) {
+                int n = Math.min(len - i, literalEnd - pos);
+                System.arraycopy(buffer, pos, cbuf, off + i, n);
+                pos += n;
+                i += n;
+            } else if (peek(0) == -1) {
+                break;
+            } else {
+                scan();
+            }
+        }
+        return i == 0 && len > 0 ? -1 : i;
+    }
+
+    @Override
+    public int read() throws IOException {
+        while (true) {
+            if (hasReplaceData()) {
+                return replaceData.charAt(replaceIndex++);
+            }
+            if (pos < literalEnd) {
+                return buffer[pos++];
+            }
+            if (peek(0) == -1) {
+                return -1;
+            }
+            scan();
+        }
+    }
+
+    private boolean hasReplaceData() {
+        return replaceData != null && replaceIndex < replaceData.length();
+    }
+
+    /**
+     * Scans from the current position, either extending the literal text or replacing an expression.
+     */
+    private void scan() throws IOException {
+        int state = 0;
+        int match = -1;
+        int matchStart = -1;
+        int k = 0;
+        while (matchStart < 0 || k < matchStart + maxBeginTokenLength) {
+            int c = peek(k);
+            if (c == -1) {
+                break;
+            }
+
+            state = automaton.next(state, (char) c);
+            int t = automaton.match(state);
+            if (t >= 0) {
+                int start = k - beginTokens[t].length() + 1;
+                if (matchStart < 0
+                        || start < matchStart
+                        || (start == matchStart && beginTokens[t].length() > beginTokens[match].length())) {
+                    match = t;
+                    matchStart = start;
+                }
+            }
+            k++;
+
+            if (matchStart < 0 && k >= LITERAL_CHUNK + maxBeginTokenLength) {
+                // the last characters may be the beginning of a token
+                literalEnd = pos + k - (maxBeginTokenLength - 1);
+                return;
+            }
+        }
+
+        if (matchStart != 0) {
+            literalEnd = pos + (matchStart < 0 ? k : matchStart);
+            return;
+        }
+
+        String beginToken = beginTokens[match];
+        String endToken = endTokens[match];
+        int keyStart = beginToken.length();
+
+        int endTokenStart = findEndTokenChar(match, keyStart);
+        if (endTokenStart >= 0) {
+            for (int j = 1; j < endToken.length(); j++) {
+                if (peek(endTokenStart + j) != endToken.charAt(j)) {
+                    endTokenStart = -1;
+                    break;
+                }
+            }
+        }
+
+        if (endTokenStart < 0) {
+            // not an expression, the following characters are scanned again
+            literalEnd = pos + 1;
+            return;
+        }
+
+        Object value = variables.get(new String(buffer, pos + keyStart, endTokenStart - keyStart));
+        if (value != null) {
+            replaceData = value.toString();
+            replaceIndex = 0;
+            pos += endTokenStart + endToken.length();
+        } else {
+            literalEnd = pos + 1;
+        }
+    }
+
+    /**
+     * Finds the first occurrence of the first character of an end token, at most {@link #MAX_KEY_LENGTH} characters
+     * from an offset. The search resumes where the previous one for the same token stopped, so that the characters
+     * following unresolved expressions are not searched again.
+     *
+     * @param t index of the pair of tokens
+     * @param from offset from the current position of the first character of the keyword
+     * @return the offset from the current position of the occurrence, -1 if there is none
+     * @throws IOException if the underlying stream throws an IOException during reading
+     */
+    private int findEndTokenChar(int t, int from) throws IOException {
+        // stream offset of the current position, which reading ahead does not change
+        final long base = bufferOffset + pos;
+        final long start = base + from;
+        final long end = start + MAX_KEY_LENGTH;
+
+        if (endTokenCharAt[t] < start) {
+            final char c0 = endTokens[t].charAt(0);
+            long i = Math.max(start, endTokenSearchedTo[t]);
+            int c;
+            while (i < end && (c = peek((int) (i - base))) != -1) {
+                if (c == c0) {
+                    endTokenCharAt[t] = i;
+                    i++;
+                    break;
+                }
+                i++;
+            }
+            endTokenSearchedTo[t] = i;
+        }
+
+        long at = endTokenCharAt[t];
+        return at >= start && at < end ? (int) (at - base) : -1;
+    }
+
+    /**
+     * @param k offset from the current position
+     * @return the character at this offset, reading ahead if needed, or -1 at the end of the stream
+     * @throws IOException if the underlying stream throws an IOException during reading
+     */
+    private int peek(int k) throws IOException {
+        while (pos + k >= limit) {
+            if (eof) {
+                return -1;
+            }
+            if (pos > 0) {
+                System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+                bufferOffset += pos;
+                limit -= pos;
+                literalEnd -= pos;
+                pos = 0;
+            }
+            if (limit == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            int n = in.read(buffer, limit, buffer.length - limit);
+            if (n < 0) {
+                eof = true;
+            } else {
+                limit += n;
+            }
+        }
+        return buffer[pos + k];
+    }
+}
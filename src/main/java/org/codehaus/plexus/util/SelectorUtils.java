@@ -55,8 +55,6 @@
 package org.codehaus.plexus.util;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.StringTokenizer;
 
 /**
@@ -659,12 +657,7 @@ private static boolean equals(char c1, char c2, boolean isCaseSensitive) {
     }
 
     private static String[] tokenizePathToString(String path, String separator) {
-        List<String> ret = new ArrayList<String>();
-        StringTokenizer st = new StringTokenizer(path, separator);
-        while (st.hasMoreTokens()) {
-            ret.add(st.nextToken());
-        }
-        return ret.toArray(new String[0]);
+        return StringUtils.split(path, separator);
     }
 
     /**
@@ -0,0 +1,156 @@
+package org.codehaus.plexus.util;
+
+/*
+ * Copyright The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces any number of strings in a text in a single scan. The strings to replace are compiled once into an
+ * Aho-Corasick automaton, and the replacer can then be applied to any number of texts.
+ * <p>
+ * Where several strings to replace overlap, the one starting first is replaced, the longest one if several start at
+ * the same position. Replacement values are not scanned again. Entries with an empty or <code>null</code> key, or a
+ * <code>null</code> value, are ignored.
+ * </p>
+ * <p>
+ * Replacers are immutable and thread safe. {@link #compile(Map)} keeps the most recently used replacers in a bounded
+ * cache.
+ * </p>
+ *
+ * @see StringUtils#replaceAll(String, Map)
+ * @since 4.0.4
+ */
+public final class StringReplacer {
+    /** Maximum number of replacers kept by {@link #compile(Map)}. */
+    private static final int CACHE_SIZE = 16;
+
+    private static final Map<Map<String, String>, StringReplacer> CACHE =
+            Collections.synchronizedMap(new LinkedHashMap<Map<String, String>, StringReplacer>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Map<String, String>, StringReplacer> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
+    private final AhoCorasick automaton;
+
+    private final String[] values;
+
+    private StringReplacer(Map<String, String> replacements) {
+        List<String> keys = new ArrayList<>(replacements.size());
+        List<String> withs = new ArrayList<>(replacements.size());
+        for (Map.Entry<String, String> entry : replacements.entrySet()) {
+            if (entry.getKey() != null && !entry.getKey().isEmpty() && entry.getValue() != null) {
+                keys.add(entry.getKey());
+                withs.add(entry.getValue());
+            }
+        }
+        this.automaton = keys.isEmpty() ? null : new AhoCorasick(keys.toArray(new String[0]));
+        this.values = withs.toArray(new String[0]);
+    }
+
+    /**
+     * Compiles a set of replacements, reusing the replacer of a previous call with equal replacements if it is still
+     * cached.
+     *
+     * @param replacements strings to replace and their replacement values
+     * @return the replacer, possibly shared with previous callers
+     */
+    public static StringReplacer compile(Map<String, String> replacements) {
+        StringReplacer replacer = CACHE.get(replacements);
+        if (replacer == null) {
+            Map<String, String> key = new HashMap<>(replacements);
+            replacer = new StringReplacer(key);
+            CACHE.put(key, replacer);
+        }
+        return replacer;
+    }
+
+    /**
+     * @param text text to search and replace in, may be null
+     * @return the text with the replacements applied, <code>null</code> if null String input
+     */
+    public String replace(String text) {
+        if (text == null || automaton == null) {
+            return text;
+        }
+
+        StringBuilder sb = new StringBuilder(text.length());
+        try {
+            replace(text, sb);
+        } catch (IOException e) {
+            // not thrown by StringBuilder
+            throw new IllegalStateException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param text text to search and replace in
+     * @param out where to append the text with the replacements applied
+     * @throws IOException if appending fails
+     */
+    public void replace(CharSequence text, Appendable out) throws IOException {
+        final int length = text.length();
+        if (automaton == null) {
+            out.append(text);
+            return;
+        }
+
+        final int maxLength = automaton.maxLength();
+        int literalStart = 0;
+        int state = 0;
+        int match = -1;
+        int matchStart = -1;
+        int i = 0;
+        while (true) {
+            if (matchStart >= 0 && (i >= length || i >= matchStart + maxLength)) {
+                // no other match can start before, nor at the same position and be longer
+                out.append(text, literalStart, matchStart);
+                out.append(values[match]);
+                literalStart = matchStart + automaton.length(match);
+                i = literalStart;
+                state = 0;
+                matchStart = -1;
+                continue;
+            }
+            if (i >= length) {
+                break;
+            }
+
+            state = automaton.next(state, text.charAt(i));
+            int t = automaton.match(state);
+            if (t >= 0) {
+                int start = i - automaton.length(t) + 1;
+                if (matchStart < 0
+                        || start < matchStart
+                        || (start == matchStart && automaton.length(t) > automaton.length(match))) {
+                    match = t;
+                    matchStart = start;
+                }
+            }
+            i++;
+        }
+        out.append(text, literalStart, length);
+    }
+}
@@ -53,7 +53,9 @@
  */
 package org.codehaus.plexus.util;
 
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Locale;
 import java.util.Map;
@@ -137,14 +139,7 @@ public static String trim(String str) {
      * @return the String without whitespaces
      */
     public static String deleteWhitespace(String str) {
-        StringBuilder buffer = new StringBuilder();
-        int sz = str.length();
-        for (int i = 0; i < sz; i++) {
-            if (!Character.isWhitespace(str.charAt(i))) {
-                buffer.append(str.charAt(i));
-            }
-        }
-        return buffer.toString();
+        return CharMatcher.whitespace().removeFrom(str);
     }
 
     /**
@@ -542,41 +537,144 @@ public static String[] split(String text, String separator) {
      * @return an array of parsed Strings
      */
     public static String[] split(String str, String separator, int max) {
-        StringTokenizer tok;
-        if (separator == null) {
-            // Null separator means we're using StringTokenizer's default
-            // delimiter, which comprises all whitespace characters.
-            tok = new StringTokenizer(str);
-        } else {
-            tok = new StringTokenizer(str, separator);
+        OffsetCollector tokens = new OffsetCollector();
+        split(str, separator, max, tokens);
+
+        String[] list = new String[tokens.size / 2];
+        for (int i = 0; i < list.length; i++) {
+            list[i] = str.substring(tokens.offsets[2 * i], tokens.offsets[2 * i + 1]);
         }
+        return list;
+    }
+
+    /**
+     * Receives the tokens found by {@link StringUtils#split(CharSequence, String, int, TokenHandler)}, as bounds in the
+     * text being split.
+     *
+     * @since 4.0.4
+     */
+    public interface TokenHandler {
+        /**
+         * @param text the text being split
+         * @param start the index of the first character of the token
+         * @param end the index following the last character of the token
+         */
+        void token(CharSequence text, int start, int end);
+    }
+
+    /**
+     * <p>
+     * Splits the provided text like {@link #split(String, String, int)}, without creating any String: the bounds of each
+     * token are passed to the handler, which may create a view such as
+     * {@link java.nio.CharBuffer#wrap(CharSequence, int, int)} if it needs one.
+     * </p>
+     *
+     * @param str The text to parse.
+     * @param separator Characters used as the delimiters. If <code>null</code>, splits on whitespace.
+     * @param max The maximum number of tokens. A zero or negative value implies no limit.
+     * @param handler receives the tokens, in order
+     * @return the number of tokens
+     * @since 4.0.4
+     */
+    public static int split(CharSequence str, String separator, int max, TokenHandler handler) {
+        // same delimiters as StringTokenizer
+        final String delimiters = separator == null ? " \t\n\r\f" : separator;
+        final boolean codePoints = hasSurrogates(delimiters);
+        final int length = str.length();
+
+        int count = 0;
+        int i = skip(str, 0, delimiters, codePoints, true);
+        while (i < length) {
+            int start = i;
+            if ((max > 0) && (count == max - 1)) {
+                // the last token gets all remaining text
+                handler.token(str, start, length);
+                return count + 1;
+            }
 
-        int listSize = tok.countTokens();
-        if ((max > 0) && (listSize > max)) {
-            listSize = max;
+            int end = skip(str, start, delimiters, codePoints, false);
+            i = skip(str, end, delimiters, codePoints, true);
+            if ((max > 0) && (i == length)) {
+                // with a maximum, the last token always gets all remaining text
+                end = length;
+            }
+            handler.token(str, start, end);
+            count++;
         }
+        return count;
+    }
 
-        String[] list = new String[listSize];
-        int i = 0;
-        int lastTokenBegin;
-        int lastTokenEnd = 0;
-        while (tok.hasMoreTokens()) {
-            if ((max > 0) && (i == listSize - 1)) {
-                // In the situation where we hit the max yet have
-                // tokens left over in our input, the last list
-                // element gets all remaining text.
-                String endToken = tok.nextToken();
-                lastTokenBegin = str.indexOf(endToken, lastTokenEnd);
-                list[i] = str.substring(lastTokenBegin);
+    /**
+     * <p>
+     * Splits the provided text like {@link #split(String, String, int)}, returning the bounds of the tokens instead of
+     * copies.
+     * </p>
+     *
+     * @param str The text to parse.
+     * @param separator Characters used as the delimiters. If <code>null</code>, splits on whitespace.
+     * @param max The maximum number of tokens. A zero or negative value implies no limit.
+     * @return the start and end index of each token, in order: token <code>i</code> is
+     *         <code>str.subSequence(offsets[2 * i], offsets[2 * i + 1])</code>
+     * @since 4.0.4
+     */
+    public static int[] splitOffsets(CharSequence str, String separator, int max) {
+        OffsetCollector tokens = new OffsetCollector();
+        split(str, separator, max, tokens);
+        return Arrays.copyOf(tokens.offsets, tokens.size);
+    }
+
+    /**
+     * @return the index of the first character from <code>i</code> which is, or is not, a delimiter
+     */
+    private static int skip(CharSequence str, int i, String delimiters, boolean codePoints, boolean skipDelimiters) {
+        final int length = str.length();
+        while (i < length) {
+            int c = codePoints ? Character.codePointAt(str, i) : str.charAt(i);
+            boolean delimiter = codePoints ? containsCodePoint(delimiters, c) : delimiters.indexOf(c) >= 0;
+            if (delimiter != skipDelimiters) {
                 break;
-            } else {
-                list[i] = tok.nextToken();
-                lastTokenBegin = str.indexOf(list[i], lastTokenEnd);
-                lastTokenEnd = lastTokenBegin + list[i].length();
             }
-            i++;
+            i += codePoints ? Character.charCount(c) : 1;
+        }
+        return i;
+    }
+
+    /**
+     * Unlike {@link String#indexOf(int)}, a lone surrogate does not match half of a surrogate pair.
+     */
+    private static boolean containsCodePoint(String str, int codePoint) {
+        for (int i = 0; i < str.length(); ) {
+            int c = str.codePointAt(i);
+            if (c == codePoint) {
+                return true;
+            }
+            i += Character.charCount(c);
+        }
+        return false;
+    }
+
+    private static boolean hasSurrogates(String str) {
+        for (int i = 0; i < str.length(); i++) {
+            if (Character.isSurrogate(str.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class OffsetCollector implements TokenHandler {
+        private int[] offsets = new int[16];
+
+        private int size;
+
+        @Override
+        public void token(CharSequence text, int start, int end) {
+            if (size + 2 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[size++] = start;
+            offsets[size++] = end;
         }
-        return list;
     }
 
     // Joining
@@ -609,20 +707,35 @@ public static String concatenate(Object[] array) {
      * @return the joined String
      */
     public static String join(Object[] array, String separator) {
+        int arraySize = array.length;
+        int bufSize = (arraySize == 0
+                ? 0
+                : (array[0].toString().length() + (separator == null ? 0 : separator.length())) * arraySize);
+        return join(array, separator, new StringBuilder(bufSize)).toString();
+    }
+
+    /**
+     * <p>
+     * Joins the elements of the provided array at the end of a StringBuilder, see {@link #join(Object[], String)}.
+     * </p>
+     *
+     * @param array the array of values to join together
+     * @param separator the separator character to use
+     * @param out the StringBuilder to append to
+     * @return <code>out</code>
+     * @since 4.0.4
+     */
+    public static StringBuilder join(Object[] array, String separator, StringBuilder out) {
         if (separator == null) {
             separator = "";
         }
-        int arraySize = array.length;
-        int bufSize = (arraySize == 0 ? 0 : (array[0].toString().length() + separator.length()) * arraySize);
-        StringBuilder buf = new StringBuilder(bufSize);
-
-        for (int i = 0; i < arraySize; i++) {
+        for (int i = 0; i < array.length; i++) {
             if (i > 0) {
-                buf.append(separator);
+                out.append(separator);
             }
-            buf.append(array[i]);
+            out.append(array[i]);
         }
-        return buf.toString();
+        return out;
     }
 
     /**
@@ -638,17 +751,33 @@ public static String join(Object[] array, String separator) {
      * @return the joined String
      */
     public static String join(Iterator<?> iterator, String separator) {
+        // Java default is 16, probably too small
+        return join(iterator, separator, new StringBuilder(256)).toString();
+    }
+
+    /**
+     * <p>
+     * Joins the elements of the provided <code>Iterator</code> at the end of a StringBuilder, see
+     * {@link #join(Iterator, String)}.
+     * </p>
+     *
+     * @param iterator the <code>Iterator</code> of values to join together
+     * @param separator the separator character to use
+     * @param out the StringBuilder to append to
+     * @return <code>out</code>
+     * @since 4.0.4
+     */
+    public static StringBuilder join(Iterator<?> iterator, String separator, StringBuilder out) {
         if (separator == null) {
             separator = "";
         }
-        StringBuilder buf = new StringBuilder(256); // Java default is 16, probably too small
         while (iterator.hasNext()) {
-            buf.append(iterator.next());
+            out.append(iterator.next());
             if (iterator.hasNext()) {
-                buf.append(separator);
+                out.append(separator);
             }
         }
-        return buf.toString();
+        return out;
     }
 
     // Replacing
@@ -765,18 +894,92 @@ public static String replace(String text, String repl, String with, int max) {
             return text;
         }
 
-        StringBuilder buf = new StringBuilder(text.length());
+        return replace(text, repl, with, max, new StringBuilder(text.length())).toString();
+    }
+
+    /**
+     * <p>
+     * Replace a String with another String inside a larger String, for the first <code>max</code> values of the search
+     * String, appending the result to a StringBuilder.
+     * </p>
+     * <p>
+     * A <code>null</code> text appends nothing, a <code>null</code> or empty search String or a <code>null</code>
+     * replacement appends the text unchanged.
+     * </p>
+     *
+     * @param text text to search and replace in
+     * @param repl String to search for
+     * @param with String to replace with
+     * @param max maximum number of values to replace, or <code>-1</code> if no maximum
+     * @param out the StringBuilder to append to
+     * @return <code>out</code>
+     * @since 4.0.4
+     */
+    public static StringBuilder replace(String text, String repl, String with, int max, StringBuilder out) {
+        if (text == null) {
+            return out;
+        }
+        if ((repl == null) || (with == null) || (repl.length() == 0)) {
+            return out.append(text);
+        }
+
         int start = 0, end;
         while ((end = text.indexOf(repl, start)) != -1) {
-            buf.append(text, start, end).append(with);
+            out.append(text, start, end).append(with);
             start = end + repl.length();
 
             if (--max == 0) {
                 break;
             }
         }
-        buf.append(text, start, text.length());
-        return buf.toString();
+        return out.append(text, start, text.length());
+    }
+
+    /**
+     * <p>
+     * Replace several Strings inside a larger String in a single scan.
+     * </p>
+     * <p>
+     * Where Strings to replace overlap, the one starting first is replaced, the longest one if several start at the
+     * same position. Replacement values are not searched again. The compiled replacements are cached, see
+     * {@link StringReplacer#compile(Map)}.
+     * </p>
+     * <p>
+     * A <code>null</code> reference passed to this method is a no-op.
+     * </p>
+     *
+     * @param text text to search and replace in
+     * @param replacements Strings to search for and the Strings to replace them with
+     * @return the text with any replacements processed
+     * @since 4.0.4
+     */
+    public static String replaceAll(String text, Map<String, String> replacements) {
+        if (text == null || replacements == null || replacements.isEmpty()) {
+            return text;
+        }
+
+        return StringReplacer.compile(replacements).replace(text);
+    }
+
+    /**
+     * <p>
+     * Replace several Strings inside a text in a single scan, see {@link #replaceAll(String, Map)}.
+     * </p>
+     *
+     * @param text text to search and replace in
+     * @param replacements Strings to search for and the Strings to replace them with
+     * @param out where to append the text with any replacements processed
+     * @throws IOException if appending fails
+     * @since 4.0.4
+     */
+    public static void replaceAll(CharSequence text, Map<String, String> replacements, Appendable out)
+            throws IOException {
+        if (replacements == null || replacements.isEmpty()) {
+            out.append(text);
+            return;
+        }
+
+        StringReplacer.compile(replacements).replace(text, out);
     }
 
     /**
@@ -840,9 +1043,35 @@ public static String center(String str, int size, String delim) {
         if (p < 1) {
             return str;
         }
-        str = leftPad(str, sz + p / 2, delim);
-        str = rightPad(str, size, delim);
-        return str;
+        return center(str, size, delim, new StringBuilder(size)).toString();
+    }
+
+    /**
+     * <p>
+     * Center a String in a larger String of size <code>n</code>, appended to a StringBuilder.
+     * </p>
+     *
+     * @param str String to center
+     * @param size int size of new String
+     * @param delim String to buffer the new String with
+     * @param out the StringBuilder to append to
+     * @return <code>out</code>
+     * @throws NullPointerException if str or delim is <code>null</code>
+     * @throws ArithmeticException if delim is the empty String
+     * @since 4.0.4
+     */
+    public static StringBuilder center(String str, int size, String delim, StringBuilder out) {
+        int sz = str.length();
+        int p = size - sz;
+        if (p < 1) {
+            return out.append(str);
+        }
+        // same padding as leftPad then rightPad
+        int left = (p / 2) / delim.length();
+        repeat(delim, left, out);
+        out.append(str);
+        int right = (size - sz - left * delim.length()) / delim.length();
+        return repeat(delim, right, out);
     }
 
     // Chomping
@@ -1047,71 +1276,86 @@ public static String chopNewline(String str) {
      * @throws NullPointerException if str is <code>null</code>
      */
     public static String escape(String str) {
+        return escape(str, new StringBuilder(2 * str.length())).toString();
+    }
+
+    /**
+     * <p>
+     * Escapes any values it finds into their String form, appending the result to a StringBuilder.
+     * </p>
+     *
+     * @param str String to escape values in
+     * @param out the StringBuilder to append to
+     * @return <code>out</code>
+     * @throws NullPointerException if str is <code>null</code>
+     * @see #escape(String)
+     * @since 4.0.4
+     */
+    public static StringBuilder escape(String str, StringBuilder out) {
         // improved with code from cybertiger@cyberiantiger.org
         // unicode from him, and default for < 32's.
         int sz = str.length();
-        StringBuilder buffer = new StringBuilder(2 * sz);
         for (int i = 0; i < sz; i++) {
             char ch = str.charAt(i);
 
             // handle unicode
             if (ch > 0xfff) {
-                buffer.append("\\u" + Integer.toHexString(ch));
+                out.append("\\u").append(Integer.toHexString(ch));
             } else if (ch > 0xff) {
-                buffer.append("\\u0" + Integer.toHexString(ch));
+                out.append("\\u0").append(Integer.toHexString(ch));
             } else if (ch > 0x7f) {
-                buffer.append("\\u00" + Integer.toHexString(ch));
+                out.append("\\u00").append(Integer.toHexString(ch));
             } else if (ch < 32) {
                 switch (ch) {
                     case '\b':
-                        buffer.append('\\');
-                        buffer.append('b');
+                        out.append('\\');
+                        out.append('b');
                         break;
                     case '\n':
-                        buffer.append('\\');
-                        buffer.append('n');
+                        out.append('\\');
+                        out.append('n');
                         break;
                     case '\t':
-                        buffer.append('\\');
-                        buffer.append('t');
+                        out.append('\\');
+                        out.append('t');
                         break;
                     case '\f':
-                        buffer.append('\\');
-                        buffer.append('f');
+                        out.append('\\');
+                        out.append('f');
                         break;
                     case '\r':
-                        buffer.append('\\');
-                        buffer.append('r');
+                        out.append('\\');
+                        out.append('r');
                         break;
                     default:
                         if (ch > 0xf) {
-                            buffer.append("\\u00" + Integer.toHexString(ch));
+                            out.append("\\u00").append(Integer.toHexString(ch));
                         } else {
-                            buffer.append("\\u000" + Integer.toHexString(ch));
+                            out.append("\\u000").append(Integer.toHexString(ch));
                         }
                         break;
                 }
             } else {
                 switch (ch) {
                     case '\'':
-                        buffer.append('\\');
-                        buffer.append('\'');
+                        out.append('\\');
+                        out.append('\'');
                         break;
                     case '"':
-                        buffer.append('\\');
-                        buffer.append('"');
+                        out.append('\\');
+                        out.append('"');
                         break;
                     case '\\':
-                        buffer.append('\\');
-                        buffer.append('\\');
+                        out.append('\\');
+                        out.append('\\');
                         break;
                     default:
-                        buffer.append(ch);
+                        out.append(ch);
                         break;
                 }
             }
         }
-        return buffer.toString();
+        return out;
     }
 
     // Padding
@@ -1129,11 +1373,26 @@ public static String escape(String str) {
      * @throws NullPointerException if str is <code>null</code>
      */
     public static String repeat(String str, int repeat) {
-        StringBuilder buffer = new StringBuilder(repeat * str.length());
+        return repeat(str, repeat, new StringBuilder(repeat * str.length())).toString();
+    }
+
+    /**
+     * <p>
+     * Repeat a String <code>n</code> times at the end of a StringBuilder.
+     * </p>
+     *
+     * @param str String to repeat
+     * @param repeat number of times to repeat str, nothing is appended if it is not positive
+     * @param out the StringBuilder to append to
+     * @return <code>out</code>
+     * @throws NullPointerException if str is <code>null</code>
+     * @since 4.0.4
+     */
+    public static StringBuilder repeat(String str, int repeat, StringBuilder out) {
         for (int i = 0; i < repeat; i++) {
-            buffer.append(str);
+            out.append(str);
         }
-        return buffer.toString();
+        return out;
     }
 
     /**
@@ -1239,8 +1498,21 @@ public static String strip(String str) {
      * @return the stripped String
      */
     public static String strip(String str, String delim) {
-        str = stripStart(str, delim);
-        return stripEnd(str, delim);
+        if (str == null) {
+            return null;
+        }
+        if (delim == null) {
+            return CharMatcher.whitespace().trimFrom(str);
+        }
+        int start = 0;
+        int end = str.length();
+        while (start != end && delim.indexOf(str.charAt(start)) != -1) {
+            start++;
+        }
+        while (end != start && delim.indexOf(str.charAt(end - 1)) != -1) {
+            end--;
+        }
+        return str.substring(start, end);
     }
 
     /**
@@ -1292,16 +1564,12 @@ public static String stripEnd(String str, String strip) {
         if (str == null) {
             return null;
         }
-        int end = str.length();
-
         if (strip == null) {
-            while ((end != 0) && Character.isWhitespace(str.charAt(end - 1))) {
-                end--;
-            }
-        } else {
-            while ((end != 0) && (strip.indexOf(str.charAt(end - 1)) != -1)) {
-                end--;
-            }
+            return CharMatcher.whitespace().trimTrailingFrom(str);
+        }
+        int end = str.length();
+        while (end != 0 && strip.indexOf(str.charAt(end - 1)) != -1) {
+            end--;
         }
         return str.substring(0, end);
     }
@@ -1322,19 +1590,13 @@ public static String stripStart(String str, String strip) {
         if (str == null) {
             return null;
         }
-
+        if (strip == null) {
+            return CharMatcher.whitespace().trimLeadingFrom(str);
+        }
         int start = 0;
-
         int sz = str.length();
-
-        if (strip == null) {
-            while ((start != sz) && Character.isWhitespace(str.charAt(start))) {
-                start++;
-            }
-        } else {
-            while ((start != sz) && (strip.indexOf(str.charAt(start)) != -1)) {
-                start++;
-            }
+        while (start != sz && strip.indexOf(str.charAt(start)) != -1) {
+            start++;
         }
         return str.substring(start);
     }
@@ -1630,13 +1892,7 @@ public static boolean isAlpha(String str) {
         if (str == null) {
             return false;
         }
-        int sz = str.length();
-        for (int i = 0; i < sz; i++) {
-            if (Character.isLetter(str.charAt(i)) == false) {
-                return false;
-            }
-        }
-        return true;
+        return CharMatcher.letter().matchesAllOf(str);
     }
 
     /**
@@ -1654,13 +1910,7 @@ public static boolean isWhitespace(String str) {
         if (str == null) {
             return false;
         }
-        int sz = str.length();
-        for (int i = 0; i < sz; i++) {
-            if ((Character.isWhitespace(str.charAt(i)) == false)) {
-                return false;
-            }
-        }
-        return true;
+        return CharMatcher.whitespace().matchesAllOf(str);
     }
 
     /**
@@ -1680,7 +1930,8 @@ public static boolean isAlphaSpace(String str) {
         }
         int sz = str.length();
         for (int i = 0; i < sz; i++) {
-            if ((Character.isLetter(str.charAt(i)) == false) && (str.charAt(i) != ' ')) {
+            char c = str.charAt(i);
+            if (c != ' ' && !CharMatcher.letter().matches(c)) {
                 return false;
             }
         }
@@ -1702,13 +1953,7 @@ public static boolean isAlphanumeric(String str) {
         if (str == null) {
             return false;
         }
-        int sz = str.length();
-        for (int i = 0; i < sz; i++) {
-            if (Character.isLetterOrDigit(str.charAt(i)) == false) {
-                return false;
-            }
-        }
-        return true;
+        return CharMatcher.letterOrDigit().matchesAllOf(str);
     }
 
     /**
@@ -1728,7 +1973,8 @@ public static boolean isAlphanumericSpace(String str) {
         }
         int sz = str.length();
         for (int i = 0; i < sz; i++) {
-            if ((Character.isLetterOrDigit(str.charAt(i)) == false) && (str.charAt(i) != ' ')) {
+            char c = str.charAt(i);
+            if (c != ' ' && !CharMatcher.letterOrDigit().matches(c)) {
                 return false;
             }
         }
@@ -1750,13 +1996,7 @@ public static boolean isNumeric(String str) {
         if (str == null) {
             return false;
         }
-        int sz = str.length();
-        for (int i = 0; i < sz; i++) {
-            if (Character.isDigit(str.charAt(i)) == false) {
-                return false;
-            }
-        }
-        return true;
+        return CharMatcher.digit().matchesAllOf(str);
     }
 
     /**
@@ -1776,7 +2016,8 @@ public static boolean isNumericSpace(String str) {
         }
         int sz = str.length();
         for (int i = 0; i < sz; i++) {
-            if ((Character.isDigit(str.charAt(i)) == false) && (str.charAt(i) != ' ')) {
+            char c = str.charAt(i);
+            if (c != ' ' && !CharMatcher.digit().matches(c)) {
                 return false;
             }
         }
@@ -1978,7 +2219,156 @@ public static int differenceAt(String s1, String s2) {
         return -1;
     }
 
+    /**
+     * Replaces the <code>${key}</code> and <code>$key</code> references in a text by the values of a namespace. Keys
+     * containing spaces are only replaced in their <code>${key}</code> form, and a <code>$key</code> reference also
+     * matches the beginning of a longer name.
+     * <p>
+     * The text is scanned once for references, which are looked up in the namespace. The result is the same as
+     * replacing each key of the namespace in turn, which is done instead when the namespace or the values make the
+     * order of the keys significant.
+     * </p>
+     *
+     * @param text the text to interpolate, may be <code>null</code>
+     * @param namespace the values to replace the references with, none may be <code>null</code>
+     * @return the interpolated text
+     * @throws NullPointerException if a value of the namespace is <code>null</code>
+     */
     public static String interpolate(String text, Map<?, ?> namespace) {
+        final int size = namespace.size();
+        final Map<String, Integer> index = new HashMap<>(size * 2);
+        final String[] keys = new String[size];
+        final String[] values = new String[size];
+        boolean orderSensitive = false;
+        int maxKeyLength = 0;
+
+        int i = 0;
+        for (Object k : namespace.keySet()) {
+            String key = k.toString();
+
+            Object obj = namespace.get(key);
+
+            if (obj == null) {
+                throw new NullPointerException("The value of the key '" + key + "' is null.");
+            }
+
+            if (!index.containsKey(key)) {
+                index.put(key, i);
+                keys[i] = key;
+                values[i++] = obj.toString();
+                maxKeyLength = Math.max(maxKeyLength, key.length());
+                // such keys can match inside other references or every '$'
+                orderSensitive |=
+                        key.isEmpty() || key.indexOf('$') >= 0 || key.indexOf('{') >= 0 || key.indexOf('}') >= 0;
+            }
+        }
+
+        if (text == null || text.indexOf('$') < 0) {
+            return text;
+        }
+        // a replaced value would follow a '$' and could complete another reference
+        if (orderSensitive || text.contains("$$")) {
+            return interpolateByReplacing(text, namespace);
+        }
+
+        final int[][] buckets = bucketByFirstChar(keys, i);
+        final int mask = buckets.length - 1;
+        final int length = text.length();
+        StringBuilder sb = null;
+        int last = 0;
+        for (int start = text.indexOf('$'); start >= 0; start = text.indexOf('$', start + 1)) {
+            int match = -1;
+            int end = -1;
+            if (start + 1 < length && text.charAt(start + 1) == '{') {
+                int close = text.indexOf('}', start + 2);
+                if (close > 0) {
+                    Integer idx = index.get(text.substring(start + 2, close));
+                    if (idx != null) {
+                        match = idx;
+                        end = close + 1;
+                    }
+                }
+            } else if (start + 1 < length) {
+                // the key coming first in the namespace wins, as it would have been replaced first
+                for (int idx : buckets[text.charAt(start + 1) & mask]) {
+                    String key = keys[idx];
+                    if (text.startsWith(key, start + 1)) {
+                        match = idx;
+                        end = start + 1 + key.length();
+                        break;
+                    }
+                }
+            }
+
+            if (match >= 0) {
+                String value = values[match];
+                if (value.indexOf('$') >= 0 || mayCompleteReference(text, last, start, maxKeyLength)) {
+                    // the value may contain, or complete, references to keys coming later in the namespace
+                    return interpolateByReplacing(text, namespace);
+                }
+                if (sb == null) {
+                    sb = new StringBuilder(length + 16);
+                }
+                sb.append(text, last, start).append(value);
+                last = end;
+                start = end - 1;
+            }
+        }
+
+        if (sb == null) {
+            return text;
+        }
+        return sb.append(text, last, length).toString();
+    }
+
+    /**
+     * Groups the keys that a <code>$key</code> reference can match by the hash of their first character, in namespace
+     * order within each group.
+     *
+     * @param keys the non-empty keys, in namespace order
+     * @param count the number of keys
+     * @return the key indexes of each group, the number of groups being a power of two
+     */
+    private static int[][] bucketByFirstChar(String[] keys, int count) {
+        final int mask = Integer.highestOneBit(Math.max(count, 1) * 2 - 1) - 1;
+        final int[] sizes = new int[mask + 1];
+        for (int k = 0; k < count; k++) {
+            if (keys[k].indexOf(' ') < 0) {
+                sizes[keys[k].charAt(0) & mask]++;
+            }
+        }
+        final int[][] buckets = new int[mask + 1][];
+        for (int b = 0; b < buckets.length; b++) {
+            buckets[b] = new int[sizes[b]];
+            sizes[b] = 0;
+        }
+        for (int k = 0; k < count; k++) {
+            if (keys[k].indexOf(' ') < 0) {
+                int b = keys[k].charAt(0) & mask;
+                buckets[b][sizes[b]++] = k;
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * @return <code>true</code> if a '$' left unreplaced before the reference at <code>start</code> may form another
+     *         reference once the value is inserted
+     */
+    private static boolean mayCompleteReference(String text, int last, int start, int maxKeyLength) {
+        int dollar = text.lastIndexOf('$', start - 1);
+        if (dollar < last) {
+            return false;
+        }
+        if (text.charAt(dollar + 1) == '{') {
+            int close = text.indexOf('}', dollar);
+            return close < 0 || close > start;
+        }
+        int space = text.indexOf(' ', dollar);
+        return start - dollar <= maxKeyLength && (space < 0 || space > start);
+    }
+
+    private static String interpolateByReplacing(String text, Map<?, ?> namespace) {
         Iterator<?> keys = namespace.keySet().iterator();
 
         while (keys.hasNext()) {
@@ -2150,16 +2540,61 @@ public static String quoteAndEscape(
             return source;
         }
 
-        String escaped = escape(source, escapedChars, escapePattern);
+        return quoteAndEscape(
+                        source,
+                        quoteChar,
+                        escapedChars,
+                        quotingTriggers,
+                        escapePattern,
+                        force,
+                        new StringBuilder(source.length() + 2))
+                .toString();
+    }
+
+    /**
+     * Quote and escape a String, appending the result to a StringBuilder. A <code>null</code> source appends nothing.
+     *
+     * @param source the source String
+     * @param quoteChar the char used to quote
+     * @param escapedChars chars to escape
+     * @param quotingTriggers chars generating a quote
+     * @param escapePattern pattern used for escaping
+     * @param force force the quoting
+     * @param out the StringBuilder to append to
+     * @return <code>out</code>
+     * @see #quoteAndEscape(String, char, char[], char[], String, boolean)
+     * @since 4.0.4
+     */
+    public static StringBuilder quoteAndEscape(
+            String source,
+            char quoteChar,
+            final char[] escapedChars,
+            final char[] quotingTriggers,
+            String escapePattern,
+            boolean force,
+            StringBuilder out) {
+        if (source == null) {
+            return out;
+        }
+
+        if (!force
+                && source.startsWith(Character.toString(quoteChar))
+                && source.endsWith(Character.toString(quoteChar))) {
+            return out.append(source);
+        }
+
+        final int start = out.length();
+        escape(source, escapedChars, escapePattern, out);
 
         boolean quote = false;
         if (force) {
             quote = true;
-        } else if (!escaped.equals(source)) {
+        } else if (!contentEquals(out, start, source)) {
+            // something has been escaped
             quote = true;
         } else {
             for (char quotingTrigger : quotingTriggers) {
-                if (escaped.indexOf(quotingTrigger) > -1) {
+                if (source.indexOf(quotingTrigger) > -1) {
                     quote = true;
                     break;
                 }
@@ -2167,10 +2602,26 @@ public static String quoteAndEscape(
         }
 
         if (quote) {
-            return quoteChar + escaped + quoteChar;
+            out.insert(start, quoteChar).append(quoteChar);
         }
 
-        return escaped;
+        return out;
+    }
+
+    /**
+     * @return <code>true</code> if the characters of <code>sb</code> from <code>start</code> are those of
+     *         <code>str</code>
+     */
+    private static boolean contentEquals(StringBuilder sb, int start, String str) {
+        if (sb.length() - start != str.length()) {
+            return false;
+        }
+        for (int i = 0; i < str.length(); i++) {
+            if (sb.charAt(start + i) != str.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -2196,24 +2647,53 @@ public static String escape(String source, final char[] escapedChars, String esc
             return null;
         }
 
+        return escape(source, escapedChars, escapePattern, new StringBuilder(source.length()))
+                .toString();
+    }
+
+    /**
+     * Escapes the given characters of a String, appending the result to a StringBuilder. A <code>null</code> source
+     * appends nothing.
+     *
+     * @param source the source String
+     * @param escapedChars chars to escape
+     * @param escapePattern pattern used for escaping, applied by {@link String#format(String, Object...)}
+     * @param out the StringBuilder to append to
+     * @return <code>out</code>
+     * @since 4.0.4
+     */
+    public static StringBuilder escape(
+            String source, final char[] escapedChars, String escapePattern, StringBuilder out) {
+        if (source == null) {
+            return out;
+        }
+
         char[] eqc = new char[escapedChars.length];
         System.arraycopy(escapedChars, 0, eqc, 0, escapedChars.length);
         Arrays.sort(eqc);
 
-        StringBuilder buffer = new StringBuilder(source.length());
+        // the usual "<escape char>%s" pattern is applied without formatting
+        String prefix = null;
+        if (escapePattern != null
+                && escapePattern.endsWith("%s")
+                && escapePattern.indexOf('%') == escapePattern.length() - 2) {
+            prefix = escapePattern.substring(0, escapePattern.length() - 2);
+        }
 
         for (int i = 0; i < source.length(); i++) {
             final char c = source.charAt(i);
             int result = Arrays.binarySearch(eqc, c);
 
-            if (result > -1) {
-                buffer.append(String.format(escapePattern, c));
+            if (result < 0) {
+                out.append(c);
+            } else if (prefix != null) {
+                out.append(prefix).append(c);
             } else {
-                buffer.append(c);
+                out.append(String.format(escapePattern, c));
             }
         }
 
-        return buffer.toString();
+        return out;
     }
 
     /**
@@ -2224,18 +2704,30 @@ public static String escape(String source, final char[] escapedChars, String esc
      * @since 1.5.7
      */
     public static String removeDuplicateWhitespace(String s) {
-        StringBuilder result = new StringBuilder();
+        return removeDuplicateWhitespace(s, new StringBuilder(s.length())).toString();
+    }
+
+    /**
+     * Remove all duplicate whitespace characters, appending the result to a StringBuilder.
+     *
+     * @param s a not null String
+     * @param out the StringBuilder to append to
+     * @return <code>out</code>
+     * @see #removeDuplicateWhitespace(String)
+     * @since 4.0.4
+     */
+    public static StringBuilder removeDuplicateWhitespace(String s, StringBuilder out) {
         int length = s.length();
         boolean isPreviousWhiteSpace = false;
         for (int i = 0; i < length; i++) {
             char c = s.charAt(i);
             boolean thisCharWhiteSpace = Character.isWhitespace(c);
             if (!(isPreviousWhiteSpace && thisCharWhiteSpace)) {
-                result.append(c);
+                out.append(c);
             }
             isPreviousWhiteSpace = thisCharWhiteSpace;
         }
-        return result.toString();
+        return out;
     }
 
     /**
@@ -2268,28 +2760,48 @@ public static String unifyLineSeparators(String s, String ls) {
             ls = System.getProperty("line.separator");
         }
 
+        return unifyLineSeparators(s, ls, new StringBuilder(s.length())).toString();
+    }
+
+    /**
+     * Replaces all occurrences of '\n', '\r' and '\r\n' with the given line separator, appending the result to a
+     * StringBuilder. A <code>null</code> String appends nothing.
+     *
+     * @param s the String
+     * @param ls the wanted line separator ("\n" on UNIX), if null using the System line separator.
+     * @param out the StringBuilder to append to
+     * @return <code>out</code>
+     * @throws IllegalArgumentException if ls is not '\n', '\r' and '\r\n' characters.
+     * @see #unifyLineSeparators(String, String)
+     * @since 4.0.4
+     */
+    public static StringBuilder unifyLineSeparators(String s, String ls, StringBuilder out) {
+        if (ls == null) {
+            ls = System.getProperty("line.separator");
+        }
+
         if (!(ls.equals("\n") || ls.equals("\r") || ls.equals("\r\n"))) {
             throw new IllegalArgumentException("Requested line separator is invalid.");
         }
 
-        int length = s.length();
+        if (s == null) {
+            return out;
+        }
 
-        StringBuilder buffer = new StringBuilder(length);
+        int length = s.length();
+        int start = 0;
         for (int i = 0; i < length; i++) {
-            if (s.charAt(i) == '\r') {
-                if ((i + 1) < length && s.charAt(i + 1) == '\n') {
+            char c = s.charAt(i);
+            if (c == '\r' || c == '\n') {
+                out.append(s, start, i).append(ls);
+                if (c == '\r' && (i + 1) < length && s.charAt(i + 1) == '\n') {
                     i++;
                 }
-
-                buffer.append(ls);
-            } else if (s.charAt(i) == '\n') {
-                buffer.append(ls);
-            } else {
-                buffer.append(s.charAt(i));
+                start = i + 1;
             }
         }
 
-        return buffer.toString();
+        return out.append(s, start, length);
     }
 
     /**
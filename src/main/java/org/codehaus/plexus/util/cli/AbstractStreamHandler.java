@@ -17,6 +17,8 @@
  */
 
 /**
+ * Handles a process stream, either started as a thread or run as a task of an {@link java.util.concurrent.Executor}.
+ *
  * @author <a href="mailto:kristian.rosenvold@gmail.com">Kristian Rosenvold</a>
  */
 public class AbstractStreamHandler extends Thread {
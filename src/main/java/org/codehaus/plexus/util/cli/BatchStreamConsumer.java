@@ -0,0 +1,53 @@
+package org.codehaus.plexus.util.cli;
+
+/*
+ * Copyright The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link StreamConsumer} receiving the pumped lines in batches. A {@link StreamPumper} collects the lines until the
+ * batch is full, the oldest line has waited for the maximum delay, or no more input is available without blocking, see
+ * {@link StreamPumper#setBatchPolicy(int, long)}.
+ * <p>
+ * As any StreamConsumer, implementations can be expected to be called from arbitrary threads and must therefore be
+ * threadsafe.
+ * </p>
+ *
+ * @since 4.0.4
+ */
+public interface BatchStreamConsumer extends StreamConsumer {
+    /**
+     * Called when the StreamPumper delivers a batch of lines pumped from the Stream.
+     *
+     * @param lines The lines to be consumed, in order. The list is only valid during the call.
+     * @throws IOException if consuming {@code lines} fails.
+     */
+    void consumeLines(List<String> lines) throws IOException;
+
+    /**
+     * Consumes a single line as a batch of one line.
+     *
+     * @param line The line to be consumed.
+     * @throws IOException if consuming {@code line} fails.
+     */
+    @Override
+    default void consumeLine(String line) throws IOException {
+        consumeLines(Collections.singletonList(line));
+    }
+}
@@ -0,0 +1,205 @@
+package org.codehaus.plexus.util.cli;
+
+/*
+ * Copyright The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+/**
+ * Splits a byte stream into lines like {@link java.io.BufferedReader#readLine()}, scanning for the line terminators
+ * as bytes in a reusable buffer and decoding only the lines. Lines longer than a maximum number of bytes are either
+ * split or truncated, so a single line never holds more than that in memory.
+ *
+ * @since 4.0.4
+ */
+class ByteLineScanner {
+    /** Initial size of the buffer. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream input;
+
+    private final Charset charset;
+
+    private final int maxLineLength;
+
+    private final boolean truncate;
+
+    private byte[] buffer;
+
+    /** Index of the first byte of the current line. */
+    private int start;
+
+    /** Index of the next byte to scan. */
+    private int scan;
+
+    /** Number of valid bytes in the buffer. */
+    private int limit;
+
+    private boolean eof;
+
+    /** Whether a line ended with '\r', so that a following '\n' belongs to it. */
+    private boolean skipLF;
+
+    /** Whether the rest of a truncated line is being dropped. */
+    private boolean discarding;
+
+    /** Decodes split lines, which may end within a character. */
+    private CharsetDecoder decoder;
+
+    private CharBuffer chars;
+
+    /**
+     * @param input the stream to split
+     * @param charset the encoding of the stream, with line terminators encoded as in ASCII
+     * @param maxLineLength the maximum number of bytes of a line
+     * @param truncate <code>true</code> to drop the bytes of a line after the maximum, <code>false</code> to return
+     *            them as the following lines
+     */
+    ByteLineScanner(InputStream input, Charset charset, int maxLineLength, boolean truncate) {
+        this.input = input;
+        this.charset = charset;
+        this.maxLineLength = maxLineLength;
+        this.truncate = truncate;
+        this.buffer = new byte[(int) Math.min(BUFFER_SIZE, maxLineLength + 1L)];
+    }
+
+    /**
+     * @param charset a charset
+     * @return <code>true</code> if the line terminators are encoded as their single ASCII bytes
+     */
+    static boolean isSupported(Charset charset) {
+        return Arrays.equals("\r\n".getBytes(charset), new byte[] {'\r', '\n'});
+    }
+
+    /**
+     * @return the next line without its terminator, <code>null</code> at the end of the stream
+     * @throws IOException if reading the stream fails
+     */
+    String readLine() throws IOException {
+        while (true) {
+            while (scan < limit) {
+                byte b = buffer[scan];
+                if (skipLF) {
+                    skipLF = false;
+                    if (b == '\n') {
+                        start = ++scan;
+                        continue;
+                    }
+                }
+
+                if (b == '\n' || b == '\r') {
+                    skipLF = b == '\r';
+                    boolean dropped = discarding;
+                    discarding = false;
+                    String line = dropped ? null : new String(buffer, start, scan - start, charset);
+                    start = ++scan;
+                    if (line != null) {
+                        return line;
+                    }
+                } else if (discarding) {
+                    start = ++scan;
+                } else if (scan - start >= maxLineLength) {
+                    String line = decodePrefix();
+                    if (truncate) {
+                        discarding = true;
+                        start = scan;
+                    }
+                    return line;
+                } else {
+                    scan++;
+                }
+            }
+
+            if (eof) {
+                if (scan > start) {
+                    String line = new String(buffer, start, scan - start, charset);
+                    start = scan;
+                    return line;
+                }
+                return null;
+            }
+            fill();
+        }
+    }
+
+    /**
+     * @return <code>true</code> if a line may be read without blocking
+     * @throws IOException if reading the stream fails
+     */
+    boolean ready() throws IOException {
+        return scan < limit || input.available() > 0;
+    }
+
+    void close() throws IOException {
+        input.close();
+    }
+
+    /**
+     * Decodes the complete characters of the current line up to the scan position, which start the next part of the
+     * line when it is split.
+     */
+    private String decodePrefix() {
+        if (decoder == null) {
+            decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+        int capacity = (int) Math.min(Integer.MAX_VALUE - 8, (long) ((scan - start) * decoder.maxCharsPerByte()) + 16);
+        if (chars == null || chars.capacity() < capacity) {
+            chars = CharBuffer.allocate(capacity);
+        }
+
+        ByteBuffer bytes = ByteBuffer.wrap(buffer, start, scan - start);
+        chars.clear();
+        decoder.reset();
+        decoder.decode(bytes, chars, false);
+        if (bytes.position() == start) {
+            // a single character longer than the maximum
+            decoder.decode(bytes, chars, true);
+            decoder.flush(chars);
+        }
+        start = bytes.position();
+        chars.flip();
+        return chars.toString();
+    }
+
+    private void fill() throws IOException {
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, limit - start);
+            scan -= start;
+            limit -= start;
+            start = 0;
+        }
+        if (limit == buffer.length) {
+            // only while a line is shorter than the maximum
+            buffer = Arrays.copyOf(buffer, (int) Math.min(Integer.MAX_VALUE - 8, buffer.length * 2L));
+        }
+
+        int n = input.read(buffer, limit, buffer.length - limit);
+        if (n < 0) {
+            eof = true;
+        } else {
+            limit += n;
+        }
+    }
+}
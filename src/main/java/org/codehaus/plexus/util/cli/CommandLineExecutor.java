@@ -0,0 +1,298 @@
+package org.codehaus.plexus.util.cli;
+
+/*
+ * Copyright The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import org.codehaus.plexus.util.Os;
+import org.codehaus.plexus.util.StringUtils;
+import org.codehaus.plexus.util.cli.shell.Shell;
+
+/**
+ * Executes the same command many times with different arguments, e.g. a formatter or a linter run on many files.
+ * <p>
+ * The executable, its arguments, environment, working directory, redirections and process listener are taken from a
+ * template {@link Commandline} once when the executor is created: the executable is resolved against the
+ * <code>PATH</code>, and the environment including the system environment is built, only once instead of on every
+ * {@link Commandline#execute()}. Later changes to the template are not seen by the executor, except on Windows for
+ * changes to its {@link Commandline#getShell() shell}, which builds the command lines of the executor.
+ * </p>
+ * <p>
+ * At most a given number of processes run at the same time, further executions wait for a running one to complete.
+ * Executors are thread safe.
+ * </p>
+ *
+ * <pre>
+ * Commandline cl = new Commandline();
+ * cl.setExecutable("formatter");
+ * cl.createArg().setValue("--check");
+ * CommandLineExecutor executor = new CommandLineExecutor(cl, 4);
+ * int exitCode = executor.execute(new String[] {"Foo.java"}, null, out, err, 0);
+ * </pre>
+ *
+ * @since 4.0.4
+ */
+public class CommandLineExecutor {
+    /** The arguments of the template, before the arguments of each execution. */
+    private final String[] templateArguments;
+
+    /** The resolved executable, <code>null</code> if the command line goes through the shell or has none. */
+    private final String executable;
+
+    /**
+     * The shell of the template building the command lines on platforms where they go through the shell,
+     * <code>null</code> if not.
+     */
+    private final Shell shell;
+
+    private final Map<String, String> environment;
+
+    private final File workingDirectory;
+
+    private final ProcessBuilder.Redirect redirectInput;
+
+    private final ProcessBuilder.Redirect redirectOutput;
+
+    private final ProcessBuilder.Redirect redirectError;
+
+    private final boolean redirectErrorStream;
+
+    private final ProcessListener processListener;
+
+    private final Semaphore permits;
+
+    private final Executor streamExecutor;
+
+    /**
+     * @param template the command line to execute, with the arguments common to all executions
+     * @param maxConcurrentProcesses the maximum number of processes running at the same time
+     * @throws CommandLineException if the environment cannot be set up or the working directory does not exist
+     */
+    public CommandLineExecutor(Commandline template, int maxConcurrentProcesses) throws CommandLineException {
+        this(template, maxConcurrentProcesses, null);
+    }
+
+    /**
+     * @param template the command line to execute, with the arguments common to all executions
+     * @param maxConcurrentProcesses the maximum number of processes running at the same time
+     * @param streamExecutor runs the tasks handling the process streams and the asynchronous executions,
+     *            <code>null</code> for {@link CommandLineUtils#getStreamExecutor()}
+     * @throws CommandLineException if the environment cannot be set up or the working directory does not exist
+     */
+    public CommandLineExecutor(Commandline template, int maxConcurrentProcesses, Executor streamExecutor)
+            throws CommandLineException {
+        this(template, maxConcurrentProcesses, streamExecutor, Os.isFamily(Os.FAMILY_WINDOWS));
+    }
+
+    /**
+     * @param throughShell <code>true</code> to build the command lines with the shell of the template, as
+     *            {@link Commandline#getCommandline()} does on Windows
+     */
+    CommandLineExecutor(Commandline template, int maxConcurrentProcesses, Executor streamExecutor, boolean throughShell)
+            throws CommandLineException {
+        if (maxConcurrentProcesses < 1) {
+            throw new IllegalArgumentException("Invalid maximum number of processes " + maxConcurrentProcesses);
+        }
+
+        this.templateArguments = template.getArguments();
+        if (throughShell) {
+            // also completes the state of the template shell
+            template.getShellCommandline();
+            // not a clone: Shell.clone() drops the shell command, the quoting and the overrides of the subclasses
+            this.shell = template.getShell();
+            this.executable = null;
+        } else {
+            this.shell = null;
+            this.executable = resolve(template.getLiteralExecutable());
+        }
+        this.environment = Commandline.toEnvironmentMap(template.getEnvironmentVariables());
+        this.redirectInput = template.getRedirectInput();
+        this.redirectOutput = template.getRedirectOutput();
+        this.redirectError = template.getRedirectError();
+        this.redirectErrorStream = template.isRedirectErrorStream();
+        this.processListener = template.getProcessListener();
+
+        this.workingDirectory = template.getWorkingDirectory();
+        if (workingDirectory != null) {
+            if (!workingDirectory.exists()) {
+                throw new CommandLineException(
+                        "Working directory \"" + workingDirectory.getPath() + "\" does not exist!");
+            } else if (!workingDirectory.isDirectory()) {
+                throw new CommandLineException(
+                        "Path \"" + workingDirectory.getPath() + "\" does not specify a directory.");
+            }
+        }
+
+        this.permits = new Semaphore(maxConcurrentProcesses, true);
+        this.streamExecutor = streamExecutor != null ? streamExecutor : CommandLineUtils.getStreamExecutor();
+    }
+
+    /**
+     * @param executable an executable name or path
+     * @return the path of the executable found in the <code>PATH</code>, or the executable itself
+     */
+    private static String resolve(String executable) {
+        if (executable == null || executable.indexOf(File.separatorChar) >= 0) {
+            return executable;
+        }
+        String path = System.getenv("PATH");
+        if (path == null) {
+            return executable;
+        }
+        for (String dir : StringUtils.split(path, File.pathSeparator)) {
+            File file = new File(dir, executable);
+            if (file.isFile() && file.canExecute()) {
+                return file.getAbsolutePath();
+            }
+        }
+        return executable;
+    }
+
+    /**
+     * @param arguments the arguments of an execution, after those of the template
+     * @return the command line executed for these arguments
+     */
+    public String[] getCommandline(String... arguments) {
+        String[] args = templateArguments;
+        if (arguments.length > 0) {
+            args = Arrays.copyOf(templateArguments, templateArguments.length + arguments.length);
+            System.arraycopy(arguments, 0, args, templateArguments.length, arguments.length);
+        }
+
+        if (shell != null) {
+            return shell.getShellCommandLine(args).toArray(new String[0]);
+        }
+        if (executable == null) {
+            return args;
+        }
+        String[] commandline = new String[args.length + 1];
+        commandline[0] = executable;
+        System.arraycopy(args, 0, commandline, 1, args.length);
+        return commandline;
+    }
+
+    /**
+     * Executes the command with the given arguments, waiting first for a running process to complete if the maximum
+     * number of processes are running.
+     *
+     * @param arguments the arguments of this execution, after those of the template
+     * @param systemIn The input to read from, must be thread safe
+     * @param systemOut A consumer that receives output, must be thread safe
+     * @param systemErr A consumer that receives system error stream output, must be thread safe
+     * @param timeoutInSeconds Positive integer to specify timeout, zero and negative integers for no timeout.
+     * @return A return value, see {@link Process#exitValue()}
+     * @throws CommandLineException or CommandLineTimeOutException if time out occurs
+     */
+    public int execute(
+            String[] arguments,
+            InputStream systemIn,
+            StreamConsumer systemOut,
+            StreamConsumer systemErr,
+            int timeoutInSeconds)
+            throws CommandLineException {
+        if (systemIn != null && redirectInput.type() != ProcessBuilder.Redirect.Type.PIPE) {
+            throw new IllegalArgumentException("systemIn cannot be used when the standard input is redirected.");
+        }
+
+        String[] commandline = getCommandline(arguments);
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommandLineException("Interrupted while waiting to execute process.", e);
+        }
+        try {
+            long spawnStartTime = System.nanoTime();
+            Process p = spawn(commandline);
+            return CommandLineUtils.handleProcess(
+                            p,
+                            systemIn,
+                            systemOut,
+                            systemErr,
+                            CommandLineUtils.isPumped(redirectOutput, false),
+                            CommandLineUtils.isPumped(redirectError, redirectErrorStream),
+                            timeoutInSeconds,
+                            streamExecutor,
+                            processListener != null
+                                    ? new ProcessRecorder(processListener, commandline, spawnStartTime)
+                                    : null)
+                    .call();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Executes the command with the given arguments as a task of the stream executor, once less than the maximum
+     * number of processes are running.
+     *
+     * @param arguments the arguments of this execution, after those of the template
+     * @param systemIn The input to read from, must be thread safe
+     * @param systemOut A consumer that receives output, must be thread safe
+     * @param systemErr A consumer that receives system error stream output, must be thread safe
+     * @param timeoutInSeconds Positive integer to specify timeout, zero and negative integers for no timeout.
+     * @return A future of the process return value, completed exceptionally with a {@link CommandLineException}
+     */
+    public CompletableFuture<Integer> executeAsync(
+            final String[] arguments,
+            final InputStream systemIn,
+            final StreamConsumer systemOut,
+            final StreamConsumer systemErr,
+            final int timeoutInSeconds) {
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+        try {
+            streamExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        future.complete(execute(arguments, systemIn, systemOut, systemErr, timeoutInSeconds));
+                    } catch (Throwable t) {
+                        future.completeExceptionally(t);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new CommandLineException("Failure scheduling process.", e));
+        }
+        return future;
+    }
+
+    private Process spawn(String[] commandline) throws CommandLineException {
+        ProcessBuilder processBuilder = new ProcessBuilder(commandline)
+                .directory(workingDirectory)
+                .redirectInput(redirectInput)
+                .redirectOutput(redirectOutput)
+                .redirectError(redirectError)
+                .redirectErrorStream(redirectErrorStream);
+        Map<String, String> env = processBuilder.environment();
+        env.clear();
+        env.putAll(environment);
+        try {
+            return processBuilder.start();
+        } catch (IOException ex) {
+            throw new CommandLineException("Error while executing process.", ex);
+        }
+    }
+}
@@ -17,11 +17,20 @@
  */
 
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.StringTokenizer;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.codehaus.plexus.util.Os;
 import org.codehaus.plexus.util.StringUtils;
@@ -53,16 +62,6 @@ public String getOutput() {
         }
     }
 
-    /**
-     * Number of milliseconds per second.
-     */
-    private static final long MILLIS_PER_SECOND = 1000L;
-
-    /**
-     * Number of nanoseconds per second.
-     */
-    private static final long NANOS_PER_SECOND = 1000000000L;
-
     public static int executeCommandLine(Commandline cl, StreamConsumer systemOut, StreamConsumer systemErr)
             throws CommandLineException {
         return executeCommandLine(cl, null, systemOut, systemErr, 0);
@@ -101,6 +100,32 @@ public static int executeCommandLine(
         return future.call();
     }
 
+    /**
+     * @param cl The command line to execute
+     * @param systemIn The input to read from, must be thread safe
+     * @param systemOut A consumer that receives output, must be thread safe
+     * @param systemErr A consumer that receives system error stream output, must be thread safe
+     * @param timeoutInSeconds Positive integer to specify timeout, zero and negative integers for no timeout.
+     * @param streamExecutor Runs the tasks feeding and pumping the process streams, <code>null</code> to start a thread
+     *            per stream. See {@link #executeCommandLineAsCallable(Commandline, InputStream, StreamConsumer,
+     *            StreamConsumer, int, Executor)}.
+     * @return A return value, see {@link Process#exitValue()}
+     * @throws CommandLineException or CommandLineTimeOutException if time out occurs
+     * @since 4.0.4
+     */
+    public static int executeCommandLine(
+            Commandline cl,
+            InputStream systemIn,
+            StreamConsumer systemOut,
+            StreamConsumer systemErr,
+            int timeoutInSeconds,
+            Executor streamExecutor)
+            throws CommandLineException {
+        final CommandLineCallable future =
+                executeCommandLineAsCallable(cl, systemIn, systemOut, systemErr, timeoutInSeconds, streamExecutor);
+        return future.call();
+    }
+
     /**
      * Immediately forks a process, returns a callable that will block until process is complete.
      *
@@ -121,67 +146,166 @@ public static CommandLineCallable executeCommandLineAsCallable(
             final StreamConsumer systemErr,
             final int timeoutInSeconds)
             throws CommandLineException {
+        return executeCommandLineAsCallable(cl, systemIn, systemOut, systemErr, timeoutInSeconds, null);
+    }
+
+    /**
+     * Immediately forks a process, returns a callable that will block until process is complete. The process streams
+     * are fed and pumped by tasks run on the given executor instead of dedicated threads, e.g. on
+     * {@link #getStreamExecutor()} which uses virtual threads when the runtime supports them.
+     * <p>
+     * The executor must start every task without waiting for other tasks to complete: a task waiting in a queue
+     * leaves a process stream unread, which may block the process.
+     * </p>
+     * <p>
+     * Streams redirected by the command line, see {@link Commandline#setRedirectOutput(ProcessBuilder.Redirect)}, are
+     * moved by the operating system: they are not pumped and their consumer is not called.
+     * </p>
+     * <p>
+     * When the command line has a {@link ProcessListener}, see {@link Commandline#setProcessListener(ProcessListener)},
+     * the metrics of the process are given to it before the callable returns.
+     * </p>
+     *
+     * @param cl The command line to execute
+     * @param systemIn The input to read from, must be thread safe
+     * @param systemOut A consumer that receives output, must be thread safe
+     * @param systemErr A consumer that receives system error stream output, must be thread safe
+     * @param timeoutInSeconds Positive integer to specify timeout, zero and negative integers for no timeout.
+     * @param streamExecutor Runs the tasks feeding and pumping the process streams, <code>null</code> to start a thread
+     *            per stream.
+     * @return A CommandLineCallable that provides the process return value, see {@link Process#exitValue()}. "call"
+     *         must be called on this to be sure the forked process has terminated, no guarantees is made about any
+     *         internal state before after the completion of the call statements
+     * @throws CommandLineException or CommandLineTimeOutException if time out occurs
+     * @since 4.0.4
+     */
+    public static CommandLineCallable executeCommandLineAsCallable(
+            final Commandline cl,
+            final InputStream systemIn,
+            final StreamConsumer systemOut,
+            final StreamConsumer systemErr,
+            final int timeoutInSeconds,
+            final Executor streamExecutor)
+            throws CommandLineException {
+        return fork(cl, systemIn, systemOut, systemErr, timeoutInSeconds, streamExecutor);
+    }
+
+    /**
+     * Forks a process and returns the callable handling it.
+     *
+     * @see #executeCommandLineAsCallable(Commandline, InputStream, StreamConsumer, StreamConsumer, int, Executor)
+     */
+    private static ProcessCallable fork(
+            final Commandline cl,
+            final InputStream systemIn,
+            final StreamConsumer systemOut,
+            final StreamConsumer systemErr,
+            final int timeoutInSeconds,
+            final Executor streamExecutor)
+            throws CommandLineException {
         if (cl == null) {
             throw new IllegalArgumentException("cl cannot be null.");
         }
 
-        final Process p = cl.execute();
-
-        final Thread processHook = new Thread() {
+        if (systemIn != null && cl.getRedirectInput().type() != ProcessBuilder.Redirect.Type.PIPE) {
+            throw new IllegalArgumentException("systemIn cannot be used when the standard input is redirected.");
+        }
 
-            {
-                this.setName("CommandLineUtils process shutdown hook");
-                this.setContextClassLoader(null);
-            }
+        ProcessListener listener = cl.getProcessListener();
+        String[] commandline = listener != null ? cl.getCommandline() : null;
+        long spawnStartTime = System.nanoTime();
+        Process p = cl.execute();
+        return handleProcess(
+                p,
+                systemIn,
+                systemOut,
+                systemErr,
+                isPumped(cl.getRedirectOutput(), false),
+                isPumped(cl.getRedirectError(), cl.isRedirectErrorStream()),
+                timeoutInSeconds,
+                streamExecutor,
+                listener != null ? new ProcessRecorder(listener, commandline, spawnStartTime) : null);
+    }
 
-            @Override
-            public void run() {
-                p.destroy();
-            }
-        };
+    /**
+     * @return <code>true</code> if the output goes through a pipe to be pumped, <code>false</code> if the operating
+     *         system moves it
+     */
+    static boolean isPumped(ProcessBuilder.Redirect redirect, boolean merged) {
+        return !merged && redirect.type() == ProcessBuilder.Redirect.Type.PIPE;
+    }
 
-        ShutdownHookUtils.addShutDownHook(processHook);
+    /**
+     * Returns a callable handling the streams of a forked process until it is complete. Redirected streams are not
+     * pumped. The metrics of the process are reported to the recorder, if any.
+     *
+     * @see #executeCommandLineAsCallable(Commandline, InputStream, StreamConsumer, StreamConsumer, int, Executor)
+     */
+    static ProcessCallable handleProcess(
+            final Process p,
+            final InputStream systemIn,
+            final StreamConsumer systemOut,
+            final StreamConsumer systemErr,
+            final boolean pumpOutput,
+            final boolean pumpError,
+            final int timeoutInSeconds,
+            final Executor streamExecutor,
+            final ProcessRecorder recorder) {
+        ProcessShutdownHook.register(p);
 
-        return new CommandLineCallable() {
+        return new ProcessCallable(p) {
 
             @Override
             public Integer call() throws CommandLineException {
                 StreamFeeder inputFeeder = null;
                 StreamPumper outputPumper = null;
                 StreamPumper errorPumper = null;
+                Integer exitCode = null;
                 boolean success = false;
                 try {
                     if (systemIn != null) {
                         inputFeeder = new StreamFeeder(systemIn, p.getOutputStream());
-                        inputFeeder.start();
+                        start(inputFeeder, streamExecutor);
                     }
 
-                    outputPumper = new StreamPumper(p.getInputStream(), systemOut);
-                    outputPumper.start();
+                    if (pumpOutput) {
+                        InputStream output = p.getInputStream();
+                        if (recorder != null) {
+                            output = recorder.output(output);
+                        }
+                        outputPumper = new StreamPumper(output, systemOut);
+                        outputPumper.setMetered(recorder != null);
+                        start(outputPumper, streamExecutor);
+                    }
 
-                    errorPumper = new StreamPumper(p.getErrorStream(), systemErr);
-                    errorPumper.start();
+                    if (pumpError) {
+                        InputStream error = p.getErrorStream();
+                        if (recorder != null) {
+                            error = recorder.error(error);
+                        }
+                        errorPumper = new StreamPumper(error, systemErr);
+                        errorPumper.setMetered(recorder != null);
+                        start(errorPumper, streamExecutor);
+                    }
 
+                    if (recorder != null) {
+                        recorder.waitStarted();
+                    }
                     int returnValue;
                     if (timeoutInSeconds <= 0) {
                         returnValue = p.waitFor();
                     } else {
-                        final long now = System.nanoTime();
-                        final long timeout = now + NANOS_PER_SECOND * timeoutInSeconds;
-
-                        while (isAlive(p) && (System.nanoTime() < timeout)) {
-                            // The timeout is specified in seconds. Therefore we must not sleep longer than one second
-                            // but we should sleep as long as possible to reduce the number of iterations performed.
-                            Thread.sleep(MILLIS_PER_SECOND - 1L);
-                        }
-
-                        if (isAlive(p)) {
+                        if (!p.waitFor(timeoutInSeconds, TimeUnit.SECONDS)) {
                             throw new InterruptedException(
                                     String.format("Process timed out after %d seconds.", timeoutInSeconds));
                         }
 
                         returnValue = p.exitValue();
                     }
+                    exitCode = returnValue;
+                    if (recorder != null) {
+                        recorder.waitEnded();
+                    }
 
                     // TODO Find out if waitUntilDone needs to be called using a try-finally construct. The method may
                     // throw an
@@ -208,19 +332,27 @@ public Integer call() throws CommandLineException {
                         inputFeeder.waitUntilDone();
                     }
 
-                    outputPumper.waitUntilDone();
-                    errorPumper.waitUntilDone();
+                    if (outputPumper != null) {
+                        outputPumper.waitUntilDone();
+                    }
+                    if (errorPumper != null) {
+                        errorPumper.waitUntilDone();
+                    }
 
                     if (inputFeeder != null) {
                         inputFeeder.close();
                         handleException(inputFeeder, "stdin");
                     }
 
-                    outputPumper.close();
-                    handleException(outputPumper, "stdout");
+                    if (outputPumper != null) {
+                        outputPumper.close();
+                        handleException(outputPumper, "stdout");
+                    }
 
-                    errorPumper.close();
-                    handleException(errorPumper, "stderr");
+                    if (errorPumper != null) {
+                        errorPumper.close();
+                        handleException(errorPumper, "stderr");
+                    }
 
                     success = true;
                     return returnValue;
@@ -229,6 +361,10 @@ public Integer call() throws CommandLineException {
                             "Error while executing external command, process killed.", ex);
 
                 } finally {
+                    if (recorder != null) {
+                        recorder.completed(exitCode, outputPumper, errorPumper);
+                    }
+
                     if (inputFeeder != null) {
                         inputFeeder.disable();
                     }
@@ -240,8 +376,8 @@ public Integer call() throws CommandLineException {
                     }
 
                     try {
-                        ShutdownHookUtils.removeShutdownHook(processHook);
-                        processHook.run();
+                        ProcessShutdownHook.unregister(p);
+                        p.destroy();
                     } finally {
                         try {
                             if (inputFeeder != null) {
@@ -280,6 +416,128 @@ public Integer call() throws CommandLineException {
         };
     }
 
+    /**
+     * Immediately forks a process and returns a future completed with the process return value once the process has
+     * terminated and its streams have been handled. Waiting for the process is a task of the stream executor, so no
+     * thread of the caller blocks. The future is completed exceptionally with a {@link CommandLineException}, or a
+     * {@link CommandLineTimeOutException} if time out occurs. If the executor rejects the waiting task, the process is
+     * destroyed and the future is completed exceptionally with the {@link RejectedExecutionException}.
+     *
+     * @param cl The command line to execute
+     * @param systemIn The input to read from, must be thread safe
+     * @param systemOut A consumer that receives output, must be thread safe
+     * @param systemErr A consumer that receives system error stream output, must be thread safe
+     * @param timeoutInSeconds Positive integer to specify timeout, zero and negative integers for no timeout.
+     * @param streamExecutor Runs the tasks feeding and pumping the process streams and waiting for the process,
+     *            <code>null</code> for {@link #getStreamExecutor()}. See {@link #executeCommandLineAsCallable(
+     *            Commandline, InputStream, StreamConsumer, StreamConsumer, int, Executor)}.
+     * @return A future of the process return value, see {@link Process#exitValue()}
+     * @throws CommandLineException if the process cannot be forked
+     * @since 4.0.4
+     */
+    public static CompletableFuture<Integer> executeCommandLineAsync(
+            Commandline cl,
+            InputStream systemIn,
+            StreamConsumer systemOut,
+            StreamConsumer systemErr,
+            int timeoutInSeconds,
+            Executor streamExecutor)
+            throws CommandLineException {
+        final Executor executor = streamExecutor != null ? streamExecutor : getStreamExecutor();
+        final ProcessCallable callable = fork(cl, systemIn, systemOut, systemErr, timeoutInSeconds, executor);
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+        Runnable waiter = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    future.complete(callable.call());
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            }
+        };
+        try {
+            executor.execute(waiter);
+        } catch (RejectedExecutionException e) {
+            // the caller must not wait for the process
+            callable.abandon();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * A callable handling a forked process, which may be abandoned instead of being called.
+     */
+    abstract static class ProcessCallable implements CommandLineCallable {
+        private final Process process;
+
+        ProcessCallable(Process process) {
+            this.process = process;
+        }
+
+        /**
+         * Destroys the process without handling its streams.
+         */
+        void abandon() {
+            ProcessShutdownHook.unregister(process);
+            process.destroy();
+        }
+    }
+
+    /**
+     * Starts a stream handler, as a task of the executor if there is one or else as a thread.
+     */
+    private static void start(AbstractStreamHandler handler, Executor executor) throws CommandLineException {
+        if (executor == null) {
+            handler.start();
+            return;
+        }
+        try {
+            executor.execute(handler);
+        } catch (RejectedExecutionException e) {
+            throw new CommandLineException("Failure starting stream handler.", e);
+        }
+    }
+
+    /**
+     * Returns a shared executor suitable for feeding and pumping process streams: a virtual thread per task when the
+     * runtime supports virtual threads, or else a cached pool of daemon threads.
+     *
+     * @return the shared stream executor
+     * @see #executeCommandLineAsCallable(Commandline, InputStream, StreamConsumer, StreamConsumer, int, Executor)
+     * @since 4.0.4
+     */
+    public static Executor getStreamExecutor() {
+        return StreamExecutorHolder.EXECUTOR;
+    }
+
+    private static final class StreamExecutorHolder {
+        static final Executor EXECUTOR = createStreamExecutor();
+    }
+
+    private static Executor createStreamExecutor() {
+        try {
+            // Java 21+
+            return (Executor)
+                    Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // no virtual threads, or only as a preview feature
+        }
+
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "CommandLineUtils stream handler " + count.incrementAndGet());
+                thread.setDaemon(true);
+                thread.setContextClassLoader(null);
+                return thread;
+            }
+        });
+    }
+
     private static void handleException(final StreamPumper streamPumper, final String streamName)
             throws CommandLineException {
         if (streamPumper.getException() != null) {
@@ -321,28 +579,49 @@ public static Properties getSystemEnvVars() {
      */
     public static Properties getSystemEnvVars(boolean caseSensitive) {
         Properties envVars = new Properties();
-        Map<String, String> envs = System.getenv();
-        for (String key : envs.keySet()) {
-            String value = envs.get(key);
-            if (!caseSensitive) {
-                key = key.toUpperCase(Locale.ENGLISH);
-            }
-            envVars.put(key, value);
-        }
+        envVars.putAll(getSystemEnvironment(caseSensitive));
         return envVars;
     }
 
-    public static boolean isAlive(Process p) {
-        if (p == null) {
-            return false;
-        }
+    /**
+     * Gets the shell environment variables for this process, normalized to upper case on platforms with
+     * case-insensitive environment variables like Windows. See {@link #getSystemEnvVars()}.
+     *
+     * @return An unmodifiable snapshot of the shell environment variables, shared by all callers.
+     * @since 4.0.4
+     */
+    public static Map<String, String> getSystemEnvironment() {
+        return getSystemEnvironment(!Os.isFamily(Os.FAMILY_WINDOWS));
+    }
 
-        try {
-            p.exitValue();
-            return false;
-        } catch (IllegalThreadStateException e) {
-            return true;
+    /**
+     * Returns the shell environment variables. The environment of a process does not change while it runs, so unlike
+     * {@link #getSystemEnvVars(boolean)} the variables are only copied once and every call returns the same map.
+     *
+     * @param caseSensitive Whether environment variable keys should be treated case-sensitively, if not all keys are
+     *            upper-case.
+     * @return An unmodifiable snapshot of the shell environment variables, shared by all callers.
+     * @since 4.0.4
+     */
+    public static Map<String, String> getSystemEnvironment(boolean caseSensitive) {
+        return caseSensitive ? System.getenv() : UpperCaseEnvironmentHolder.ENVIRONMENT;
+    }
+
+    private static final class UpperCaseEnvironmentHolder {
+        static final Map<String, String> ENVIRONMENT = upperCaseEnvironment();
+    }
+
+    private static Map<String, String> upperCaseEnvironment() {
+        Map<String, String> envs = System.getenv();
+        Map<String, String> envVars = new HashMap<>(envs.size() * 2);
+        for (Map.Entry<String, String> env : envs.entrySet()) {
+            envVars.put(env.getKey().toUpperCase(Locale.ENGLISH), env.getValue());
         }
+        return Collections.unmodifiableMap(envVars);
+    }
+
+    public static boolean isAlive(Process p) {
+        return p != null && p.isAlive();
     }
 
     public static String[] translateCommandline(String toProcess) throws Exception {
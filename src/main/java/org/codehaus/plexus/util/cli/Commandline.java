@@ -130,6 +130,16 @@ public class Commandline implements Cloneable {
     @Deprecated
     private File workingDir;
 
+    private ProcessBuilder.Redirect redirectInput = ProcessBuilder.Redirect.PIPE;
+
+    private ProcessBuilder.Redirect redirectOutput = ProcessBuilder.Redirect.PIPE;
+
+    private ProcessBuilder.Redirect redirectError = ProcessBuilder.Redirect.PIPE;
+
+    private boolean redirectErrorStream;
+
+    private ProcessListener processListener;
+
     /**
      * Create a new command line object. Shell is autodetected from operating system Shell usage is only desirable when
      * generating code for remote execution.
@@ -396,12 +406,10 @@ public void addEnvironment(String name, String value) {
      * @throws Exception if error
      */
     public void addSystemEnvironment() throws Exception {
-        Properties systemEnvVars = CommandLineUtils.getSystemEnvVars();
-
-        for (Object o : systemEnvVars.keySet()) {
-            String key = (String) o;
-            if (!envVars.containsKey(key)) {
-                addEnvironment(key, systemEnvVars.getProperty(key));
+        for (Map.Entry<String, String> env :
+                CommandLineUtils.getSystemEnvironment().entrySet()) {
+            if (!envVars.containsKey(env.getKey())) {
+                addEnvironment(env.getKey(), env.getValue());
             }
         }
     }
@@ -502,6 +510,11 @@ public Object clone() {
         Commandline c = new Commandline((Shell) shell.clone());
         c.executable = executable;
         c.workingDir = workingDir;
+        c.redirectInput = redirectInput;
+        c.redirectOutput = redirectOutput;
+        c.redirectError = redirectError;
+        c.redirectErrorStream = redirectErrorStream;
+        c.processListener = processListener;
         c.addArguments(getArguments());
         return c;
     }
@@ -569,36 +582,171 @@ public File getWorkingDirectory() {
      * @throws CommandLineException if error
      */
     public Process execute() throws CommandLineException {
+        ProcessBuilder processBuilder = createProcessBuilder();
+        try {
+            return processBuilder.start();
+        } catch (IOException ex) {
+            throw new CommandLineException("Error while executing process.", ex);
+        }
+    }
+
+    /**
+     * Creates the ProcessBuilder used by {@link #execute()}: with the command line, the environment variables, the
+     * working directory and the redirections of this command line.
+     *
+     * @return the ProcessBuilder, which can be further configured
+     * @throws CommandLineException if the environment variables cannot be set up or the working directory does not
+     *             exist
+     * @since 4.0.4
+     */
+    public ProcessBuilder createProcessBuilder() throws CommandLineException {
         // TODO: Provided only for backward compat. with <= 1.4
         verifyShellState();
 
-        Process process;
-
         // addEnvironment( "MAVEN_TEST_ENVAR", "MAVEN_TEST_ENVAR_VALUE" );
 
         String[] environment = getEnvironmentVariables();
 
         File workingDir = shell.getWorkingDirectory();
 
-        try {
-            if (workingDir == null) {
-                process = Runtime.getRuntime().exec(getCommandline(), environment, workingDir);
-            } else {
-                if (!workingDir.exists()) {
-                    throw new CommandLineException(
-                            "Working directory \"" + workingDir.getPath() + "\" does not exist!");
-                } else if (!workingDir.isDirectory()) {
-                    throw new CommandLineException(
-                            "Path \"" + workingDir.getPath() + "\" does not specify a directory.");
-                }
+        if (workingDir != null) {
+            if (!workingDir.exists()) {
+                throw new CommandLineException("Working directory \"" + workingDir.getPath() + "\" does not exist!");
+            } else if (!workingDir.isDirectory()) {
+                throw new CommandLineException("Path \"" + workingDir.getPath() + "\" does not specify a directory.");
+            }
+        }
+
+        ProcessBuilder processBuilder = new ProcessBuilder(getCommandline())
+                .directory(workingDir)
+                .redirectInput(redirectInput)
+                .redirectOutput(redirectOutput)
+                .redirectError(redirectError)
+                .redirectErrorStream(redirectErrorStream);
+        Map<String, String> env = processBuilder.environment();
+        env.clear();
+        env.putAll(toEnvironmentMap(environment));
+        return processBuilder;
+    }
 
-                process = Runtime.getRuntime().exec(getCommandline(), environment, workingDir);
+    /**
+     * Parses "name=value" environment entries like {@link Runtime#exec(String[], String[], File)} does.
+     *
+     * @param environment the entries, see {@link #getEnvironmentVariables()}
+     * @return the environment variables
+     */
+    static Map<String, String> toEnvironmentMap(String[] environment) {
+        Map<String, String> env = new LinkedHashMap<>(environment.length * 2);
+        int minNameLength = Os.isFamily(Os.FAMILY_WINDOWS) ? 1 : 0;
+        for (String envstring : environment) {
+            int nul = envstring.indexOf('\u0000');
+            if (nul != -1) {
+                envstring = envstring.substring(0, nul);
+            }
+            int eqlsign = envstring.indexOf('=', minNameLength);
+            if (eqlsign != -1) {
+                env.put(envstring.substring(0, eqlsign), envstring.substring(eqlsign + 1));
             }
-        } catch (IOException ex) {
-            throw new CommandLineException("Error while executing process.", ex);
         }
+        return env;
+    }
+
+    /**
+     * Sets where the process reads its standard input from. When it is not {@link ProcessBuilder.Redirect#PIPE},
+     * {@link CommandLineUtils} feeds nothing to the process.
+     *
+     * @param redirect the source of the standard input, <code>null</code> for {@link ProcessBuilder.Redirect#PIPE}
+     * @since 4.0.4
+     */
+    public void setRedirectInput(ProcessBuilder.Redirect redirect) {
+        this.redirectInput = redirect != null ? redirect : ProcessBuilder.Redirect.PIPE;
+    }
+
+    /**
+     * @return the source of the standard input
+     * @since 4.0.4
+     */
+    public ProcessBuilder.Redirect getRedirectInput() {
+        return redirectInput;
+    }
+
+    /**
+     * Sets where the process writes its standard output, e.g. {@link ProcessBuilder.Redirect#to(File)} or
+     * {@link ProcessBuilder.Redirect#INHERIT}. When it is not {@link ProcessBuilder.Redirect#PIPE}, the operating
+     * system moves the output and {@link CommandLineUtils} does not pump it.
+     *
+     * @param redirect the destination of the standard output, <code>null</code> for
+     *            {@link ProcessBuilder.Redirect#PIPE}
+     * @since 4.0.4
+     */
+    public void setRedirectOutput(ProcessBuilder.Redirect redirect) {
+        this.redirectOutput = redirect != null ? redirect : ProcessBuilder.Redirect.PIPE;
+    }
+
+    /**
+     * @return the destination of the standard output
+     * @since 4.0.4
+     */
+    public ProcessBuilder.Redirect getRedirectOutput() {
+        return redirectOutput;
+    }
+
+    /**
+     * Sets where the process writes its standard error. When it is not {@link ProcessBuilder.Redirect#PIPE}, the
+     * operating system moves the output and {@link CommandLineUtils} does not pump it.
+     *
+     * @param redirect the destination of the standard error, <code>null</code> for
+     *            {@link ProcessBuilder.Redirect#PIPE}
+     * @since 4.0.4
+     */
+    public void setRedirectError(ProcessBuilder.Redirect redirect) {
+        this.redirectError = redirect != null ? redirect : ProcessBuilder.Redirect.PIPE;
+    }
+
+    /**
+     * @return the destination of the standard error
+     * @since 4.0.4
+     */
+    public ProcessBuilder.Redirect getRedirectError() {
+        return redirectError;
+    }
+
+    /**
+     * Sets whether the standard error is merged into the standard output, in which case the redirection of the
+     * standard error is ignored.
+     *
+     * @param redirectErrorStream <code>true</code> to merge the standard error into the standard output
+     * @since 4.0.4
+     */
+    public void setRedirectErrorStream(boolean redirectErrorStream) {
+        this.redirectErrorStream = redirectErrorStream;
+    }
+
+    /**
+     * @return whether the standard error is merged into the standard output
+     * @since 4.0.4
+     */
+    public boolean isRedirectErrorStream() {
+        return redirectErrorStream;
+    }
 
-        return process;
+    /**
+     * Sets the listener receiving the metrics of each execution of this command line by {@link CommandLineUtils} or a
+     * {@link CommandLineExecutor}. Nothing is measured without a listener.
+     *
+     * @param processListener the listener, <code>null</code> for none
+     * @since 4.0.4
+     */
+    public void setProcessListener(ProcessListener processListener) {
+        this.processListener = processListener;
+    }
+
+    /**
+     * @return the listener receiving the metrics of the executions, <code>null</code> if none
+     * @since 4.0.4
+     */
+    public ProcessListener getProcessListener() {
+        return processListener;
     }
 
     /**
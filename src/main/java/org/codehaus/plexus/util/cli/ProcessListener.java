@@ -0,0 +1,36 @@
+package org.codehaus.plexus.util.cli;
+
+/*
+ * Copyright The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Receives the metrics of the processes executed by {@link CommandLineUtils} and {@link CommandLineExecutor}, see
+ * {@link Commandline#setProcessListener(ProcessListener)}. Implementations can be expected to be called from arbitrary
+ * threads and must therefore be threadsafe. They should return quickly, e.g. by updating counters or queueing the
+ * metrics, as they are called before the execution returns.
+ *
+ * @since 4.0.4
+ */
+public interface ProcessListener {
+    /**
+     * Called once the process has terminated, or has been destroyed, and its streams have been handled. When the
+     * process timed out or its handling failed, the stream measurements are the ones reached so far. A runtime
+     * exception thrown by the listener is ignored.
+     *
+     * @param metrics the metrics of the process
+     */
+    void processCompleted(ProcessMetrics metrics);
+}
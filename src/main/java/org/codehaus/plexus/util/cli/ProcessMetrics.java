@@ -0,0 +1,159 @@
+package org.codehaus.plexus.util.cli;
+
+/*
+ * Copyright The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Arrays;
+
+/**
+ * Measurements of a process executed by {@link CommandLineUtils} or {@link CommandLineExecutor}, given to a
+ * {@link ProcessListener}. Times are in nanoseconds.
+ *
+ * @since 4.0.4
+ */
+public final class ProcessMetrics {
+    /**
+     * Measurements of a standard stream of a process. All are 0 when the stream is redirected and not pumped.
+     */
+    public static final class StreamMetrics {
+        private final long bytes;
+
+        private final long lines;
+
+        private final long consumerNanos;
+
+        StreamMetrics(long bytes, long lines, long consumerNanos) {
+            this.bytes = bytes;
+            this.lines = lines;
+            this.consumerNanos = consumerNanos;
+        }
+
+        /**
+         * @return the number of bytes read from the stream
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return the number of lines pumped
+         */
+        public long getLines() {
+            return lines;
+        }
+
+        /**
+         * @return the time spent in the consumer of the lines
+         */
+        public long getConsumerNanos() {
+            return consumerNanos;
+        }
+
+        @Override
+        public String toString() {
+            return bytes + " bytes, " + lines + " lines, consumer " + consumerNanos + " ns";
+        }
+    }
+
+    private final String[] commandline;
+
+    private final long spawnNanos;
+
+    private final long firstOutputNanos;
+
+    private final long waitNanos;
+
+    private final Integer exitCode;
+
+    private final StreamMetrics output;
+
+    private final StreamMetrics error;
+
+    ProcessMetrics(
+            String[] commandline,
+            long spawnNanos,
+            long firstOutputNanos,
+            long waitNanos,
+            Integer exitCode,
+            StreamMetrics output,
+            StreamMetrics error) {
+        this.commandline = commandline;
+        this.spawnNanos = spawnNanos;
+        this.firstOutputNanos = firstOutputNanos;
+        this.waitNanos = waitNanos;
+        this.exitCode = exitCode;
+        this.output = output;
+        this.error = error;
+    }
+
+    /**
+     * @return the executed command line
+     */
+    public String[] getCommandline() {
+        return commandline.clone();
+    }
+
+    /**
+     * @return the time taken to start the process
+     */
+    public long getSpawnNanos() {
+        return spawnNanos;
+    }
+
+    /**
+     * @return the time from the start of the process to the first byte read from its standard output or error, -1 if
+     *         none was read
+     */
+    public long getFirstOutputNanos() {
+        return firstOutputNanos;
+    }
+
+    /**
+     * @return the time spent waiting for the process to terminate
+     */
+    public long getWaitNanos() {
+        return waitNanos;
+    }
+
+    /**
+     * @return the exit code of the process, <code>null</code> if the process did not terminate on its own, e.g. when
+     *         it timed out
+     */
+    public Integer getExitCode() {
+        return exitCode;
+    }
+
+    /**
+     * @return the measurements of the standard output
+     */
+    public StreamMetrics getOutput() {
+        return output;
+    }
+
+    /**
+     * @return the measurements of the standard error
+     */
+    public StreamMetrics getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "ProcessMetrics[" + Arrays.toString(commandline) + ", exit code " + exitCode + ", spawn " + spawnNanos
+                + " ns, first output " + firstOutputNanos + " ns, wait " + waitNanos + " ns, stdout: " + output
+                + ", stderr: " + error + "]";
+    }
+}
@@ -0,0 +1,173 @@
+package org.codehaus.plexus.util.cli;
+
+/*
+ * Copyright The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Measures the execution of a process for a {@link ProcessListener}: counts the bytes read from the process streams
+ * and times the stages of the execution. Only created when a listener is set, so executions without one pay nothing.
+ *
+ * @since 4.0.4
+ */
+final class ProcessRecorder {
+    /**
+     * Counts the bytes read from a process stream and notes when the first one arrives. The fields are volatile as
+     * they may be read while the stream is still pumped.
+     */
+    private static final class MeteredInputStream extends FilterInputStream {
+        private volatile long bytes;
+
+        private volatile long firstByteTime;
+
+        MeteredInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        private void count(int n) {
+            long b = bytes;
+            if (b == 0) {
+                firstByteTime = System.nanoTime();
+            }
+            bytes = b + n;
+        }
+    }
+
+    private final ProcessListener listener;
+
+    private final String[] commandline;
+
+    private final long spawnNanos;
+
+    /** When the process was started. */
+    private final long startTime;
+
+    private boolean waiting;
+
+    private long waitStartTime;
+
+    private long waitNanos;
+
+    private MeteredInputStream output;
+
+    private MeteredInputStream error;
+
+    /**
+     * @param listener the listener of the metrics
+     * @param commandline the executed command line
+     * @param spawnStartTime the {@link System#nanoTime()} before starting the process, which has just been started
+     */
+    ProcessRecorder(ProcessListener listener, String[] commandline, long spawnStartTime) {
+        this.listener = listener;
+        this.commandline = commandline;
+        this.startTime = System.nanoTime();
+        this.spawnNanos = startTime - spawnStartTime;
+    }
+
+    /**
+     * @param in the standard output of the process
+     * @return the stream to pump
+     */
+    InputStream output(InputStream in) {
+        output = new MeteredInputStream(in);
+        return output;
+    }
+
+    /**
+     * @param in the standard error of the process
+     * @return the stream to pump
+     */
+    InputStream error(InputStream in) {
+        error = new MeteredInputStream(in);
+        return error;
+    }
+
+    void waitStarted() {
+        waiting = true;
+        waitStartTime = System.nanoTime();
+    }
+
+    void waitEnded() {
+        waiting = false;
+        waitNanos = System.nanoTime() - waitStartTime;
+    }
+
+    /**
+     * Reports the metrics to the listener. When the process timed out or its handling failed, the pumpers may still be
+     * running and the stream measurements are the ones reached so far. A failure of the listener is ignored, so that
+     * it never changes the outcome of the execution.
+     *
+     * @param exitCode the exit code of the process, <code>null</code> if it did not terminate on its own
+     * @param outputPumper the pumper of the standard output, <code>null</code> if not pumped
+     * @param errorPumper the pumper of the standard error, <code>null</code> if not pumped
+     */
+    void completed(Integer exitCode, StreamPumper outputPumper, StreamPumper errorPumper) {
+        if (waiting) {
+            // the wait did not end normally
+            waitEnded();
+        }
+
+        long firstByteTime = Long.MAX_VALUE;
+        if (output != null && output.bytes > 0) {
+            firstByteTime = output.firstByteTime;
+        }
+        if (error != null && error.bytes > 0) {
+            firstByteTime = Math.min(firstByteTime, error.firstByteTime);
+        }
+
+        ProcessMetrics metrics = new ProcessMetrics(
+                commandline,
+                spawnNanos,
+                firstByteTime == Long.MAX_VALUE ? -1L : firstByteTime - startTime,
+                waitNanos,
+                exitCode,
+                metrics(output, outputPumper),
+                metrics(error, errorPumper));
+        try {
+            listener.processCompleted(metrics);
+        } catch (RuntimeException e) {
+            // metrics must not break the execution of the process
+        }
+    }
+
+    private static ProcessMetrics.StreamMetrics metrics(MeteredInputStream in, StreamPumper pumper) {
+        if (in == null || pumper == null) {
+            return new ProcessMetrics.StreamMetrics(0L, 0L, 0L);
+        }
+        return new ProcessMetrics.StreamMetrics(in.bytes, pumper.getLineCount(), pumper.getConsumerNanos());
+    }
+}
@@ -0,0 +1,89 @@
+package org.codehaus.plexus.util.cli;
+
+/*
+ * Copyright The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A single shutdown hook destroying the processes still running when the JVM exits. Registering a process only adds it
+ * to a concurrent set, instead of adding a hook thread to the runtime for each process. The hook is installed when the
+ * first process is registered.
+ *
+ * @since 4.0.4
+ */
+final class ProcessShutdownHook {
+    /** The processes destroyed by the shutdown hook. */
+    private static final ProcessShutdownHook SHARED = new ProcessShutdownHook();
+
+    static {
+        ShutdownHookUtils.addShutDownHook(new Thread() {
+
+            {
+                this.setName("CommandLineUtils process shutdown hook");
+                this.setContextClassLoader(null);
+            }
+
+            @Override
+            public void run() {
+                SHARED.destroyAll();
+            }
+        });
+    }
+
+    private final Set<Process> processes = Collections.newSetFromMap(new ConcurrentHashMap<Process, Boolean>());
+
+    /**
+     * Creates a set of processes which is not destroyed at shutdown, see {@link #register(Process)} for the one that
+     * is.
+     */
+    ProcessShutdownHook() {}
+
+    /**
+     * @param process a process to destroy if it is still registered when the JVM exits
+     */
+    static void register(Process process) {
+        SHARED.add(process);
+    }
+
+    /**
+     * @param process a process which no longer needs to be destroyed when the JVM exits
+     */
+    static void unregister(Process process) {
+        SHARED.remove(process);
+    }
+
+    void add(Process process) {
+        processes.add(process);
+    }
+
+    void remove(Process process) {
+        processes.remove(process);
+    }
+
+    /**
+     * Destroys the processes of this set.
+     */
+    void destroyAll() {
+        for (Iterator<Process> it = processes.iterator(); it.hasNext(); ) {
+            it.next().destroy();
+            it.remove();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.codehaus.plexus.util.cli;
+
+/*
+ * Copyright The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+
+/**
+ * Works in concert with the StreamPumper class to give access to the bytes being "Pumped", without decoding them nor
+ * splitting them into lines, e.g. for binary output. Implementations can be expected to be called from arbitrary
+ * threads and must therefore be threadsafe.
+ *
+ * @see StreamPumper#StreamPumper(java.io.InputStream, RawStreamConsumer)
+ * @since 4.0.4
+ */
+public interface RawStreamConsumer {
+    /**
+     * Called when the StreamPumper pumps bytes from the Stream.
+     *
+     * @param bytes buffer holding the bytes, reused once the call returns
+     * @param offset index of the first byte in the buffer
+     * @param length number of bytes
+     * @throws IOException if consuming the bytes fails.
+     */
+    void consume(byte[] bytes, int offset, int length) throws IOException;
+}
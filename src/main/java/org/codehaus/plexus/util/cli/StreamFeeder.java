@@ -27,6 +27,8 @@
  *
  */
 public class StreamFeeder extends AbstractStreamHandler {
+    /** Size of the blocks copied from the input to the output. */
+    private static final int BUFFER_SIZE = 8192;
 
     private InputStream input;
 
@@ -105,16 +107,17 @@ public Throwable getException() {
 
     private void feed() throws IOException {
         boolean flush = false;
-        int data = input.read();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int n = input.read(buffer);
 
-        while (!isDone() && data != -1) {
+        while (!isDone() && n != -1) {
             synchronized (output) {
                 if (!isDisabled()) {
-                    output.write(data);
+                    output.write(buffer, 0, n);
                     flush = true;
                 }
 
-                data = input.read();
+                n = input.read(buffer);
             }
         }
 
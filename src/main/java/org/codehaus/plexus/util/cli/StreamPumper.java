@@ -75,6 +75,10 @@
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Class to pump the error stream during Process's runtime. Copied from the Ant built-in task.
@@ -85,16 +89,70 @@
  * @since June 11, 2001
  */
 public class StreamPumper extends AbstractStreamHandler {
+    /** The lines decoded with the platform charset, <code>null</code> when reading bytes. */
     private final BufferedReader in;
 
+    /** The lines scanned as bytes, <code>null</code> when reading characters or pumping raw bytes. */
+    private final ByteLineScanner scanner;
+
+    /** The stream pumped as raw bytes, <code>null</code> when pumping lines. */
+    private final InputStream rawIn;
+
     private final StreamConsumer consumer;
 
+    private final RawStreamConsumer rawConsumer;
+
     private final PrintWriter out;
 
     private volatile Exception exception = null;
 
+    /** Whether printing to the writer has failed. */
+    private boolean outError;
+
     private static final int SIZE = 1024;
 
+    /** Size of the buffer pumping raw bytes. */
+    private static final int RAW_SIZE = 64 * 1024;
+
+    /**
+     * Default maximum number of bytes of a line read with an explicit charset.
+     *
+     * @since 4.0.4
+     */
+    public static final int DEFAULT_MAX_LINE_LENGTH = 1024 * 1024;
+
+    /**
+     * Default maximum number of lines of a batch delivered to a {@link BatchStreamConsumer}.
+     *
+     * @since 4.0.4
+     */
+    public static final int DEFAULT_BATCH_LINES = 1024;
+
+    /**
+     * Default maximum time in milliseconds a line waits in a batch delivered to a {@link BatchStreamConsumer}.
+     *
+     * @since 4.0.4
+     */
+    public static final long DEFAULT_BATCH_DELAY_MILLIS = 100L;
+
+    /** Maximum number of lines pumped between two deliveries. */
+    private int maxBatchLines = 1;
+
+    /**
+     * Maximum time in nanoseconds between the pumping of a line and its delivery, checked when the following lines are
+     * pumped.
+     */
+    private long maxBatchDelayNanos;
+
+    /** Whether the pumped lines and the time spent in the consumer are measured. */
+    private boolean metered;
+
+    /** Number of lines pumped, if measured. Volatile as it may be read while the pumper runs. */
+    private volatile long lineCount;
+
+    /** Time in nanoseconds spent in the consumer, if measured. */
+    private volatile long consumerNanos;
+
     public StreamPumper(InputStream in) {
         this(in, (StreamConsumer) null);
     }
@@ -108,48 +166,201 @@ public StreamPumper(InputStream in, PrintWriter writer) {
     }
 
     public StreamPumper(InputStream in, PrintWriter writer, StreamConsumer consumer) {
+        this(new BufferedReader(new InputStreamReader(in), SIZE), null, null, writer, consumer, null);
+    }
+
+    /**
+     * Creates a pumper scanning the stream as bytes, splitting lines longer than {@link #DEFAULT_MAX_LINE_LENGTH}
+     * bytes.
+     *
+     * @param in the stream to pump
+     * @param charset the encoding of the stream
+     * @param writer where to print the lines, may be <code>null</code>
+     * @param consumer the consumer of the lines, may be <code>null</code>
+     * @throws IllegalArgumentException if the charset does not encode the line terminators as single ASCII bytes
+     * @since 4.0.4
+     */
+    public StreamPumper(InputStream in, Charset charset, PrintWriter writer, StreamConsumer consumer) {
+        this(in, charset, writer, consumer, DEFAULT_MAX_LINE_LENGTH, false);
+    }
+
+    /**
+     * Creates a pumper scanning the stream as bytes into a reusable buffer and decoding each line with the given
+     * charset. A line never holds more than <code>maxLineLength</code> bytes in memory: the rest of a longer line is
+     * either dropped or returned as the following lines. A line is only split between complete characters.
+     *
+     * @param in the stream to pump
+     * @param charset the encoding of the stream
+     * @param writer where to print the lines, may be <code>null</code>
+     * @param consumer the consumer of the lines, may be <code>null</code>
+     * @param maxLineLength the maximum number of bytes of a line
+     * @param truncate <code>true</code> to drop the bytes of a line after the maximum, <code>false</code> to split the
+     *            line
+     * @throws IllegalArgumentException if the charset does not encode the line terminators as single ASCII bytes, or
+     *             if the maximum line length is not positive
+     * @since 4.0.4
+     */
+    public StreamPumper(
+            InputStream in,
+            Charset charset,
+            PrintWriter writer,
+            StreamConsumer consumer,
+            int maxLineLength,
+            boolean truncate) {
+        this(null, newScanner(in, charset, maxLineLength, truncate), null, writer, consumer, null);
+    }
+
+    /**
+     * Creates a pumper handing the bytes of the stream to the consumer as they are read, e.g. for binary output.
+     *
+     * @param in the stream to pump
+     * @param consumer the consumer of the bytes
+     * @since 4.0.4
+     */
+    public StreamPumper(InputStream in, RawStreamConsumer consumer) {
+        this(null, null, in, null, null, consumer);
+    }
+
+    private StreamPumper(
+            BufferedReader in,
+            ByteLineScanner scanner,
+            InputStream rawIn,
+            PrintWriter writer,
+            StreamConsumer consumer,
+            RawStreamConsumer rawConsumer) {
         super();
-        this.in = new BufferedReader(new InputStreamReader(in), SIZE);
+        this.in = in;
+        this.scanner = scanner;
+        this.rawIn = rawIn;
         this.out = writer;
         this.consumer = consumer;
+        this.rawConsumer = rawConsumer;
+        if (consumer instanceof BatchStreamConsumer) {
+            setBatchPolicy(DEFAULT_BATCH_LINES, DEFAULT_BATCH_DELAY_MILLIS);
+        }
+    }
+
+    private static ByteLineScanner newScanner(InputStream in, Charset charset, int maxLineLength, boolean truncate) {
+        if (!ByteLineScanner.isSupported(charset)) {
+            throw new IllegalArgumentException("Charset " + charset + " does not encode line terminators as in ASCII");
+        }
+        if (maxLineLength < 1) {
+            throw new IllegalArgumentException("Invalid maximum line length " + maxLineLength);
+        }
+        return new ByteLineScanner(in, charset, maxLineLength, truncate);
+    }
+
+    /**
+     * Sets when pumped lines are delivered: lines are given to a {@link BatchStreamConsumer} in batches, and the writer
+     * is flushed once per batch instead of once per line. A batch is delivered when it holds <code>maxLines</code>
+     * lines, when its first line has waited for <code>maxDelayMillis</code>, when no more input is available without
+     * blocking, and at the end of the stream. Must be called before the pumper runs.
+     * <p>
+     * The delay is only checked when a line is pumped. Lines followed by no input are delivered at once, since no
+     * more input is available. But lines followed by the beginning of an unterminated line wait until that line
+     * is complete, however long that takes.
+     * </p>
+     * <p>
+     * By default each line is delivered on its own, unless the consumer is a {@link BatchStreamConsumer} in which case
+     * batches of up to {@link #DEFAULT_BATCH_LINES} lines and {@link #DEFAULT_BATCH_DELAY_MILLIS} milliseconds are
+     * used. A plain {@link StreamConsumer} is always given the lines one at a time.
+     * </p>
+     *
+     * @param maxLines maximum number of lines of a batch, 1 to deliver every line on its own
+     * @param maxDelayMillis maximum time in milliseconds a line waits in a batch, 0 for no limit
+     * @throws IllegalArgumentException if <code>maxLines</code> is not positive or <code>maxDelayMillis</code> is
+     *             negative
+     * @since 4.0.4
+     */
+    public void setBatchPolicy(int maxLines, long maxDelayMillis) {
+        if (maxLines < 1 || maxDelayMillis < 0) {
+            throw new IllegalArgumentException(
+                    "Invalid batch policy " + maxLines + " lines, " + maxDelayMillis + " ms");
+        }
+        this.maxBatchLines = maxLines;
+        this.maxBatchDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+    }
+
+    /**
+     * Sets whether the pumped lines and the time spent in the consumer are measured, see {@link #getLineCount()} and
+     * {@link #getConsumerNanos()}. Must be called before the pumper runs.
+     */
+    void setMetered(boolean metered) {
+        this.metered = metered;
+    }
+
+    /**
+     * @return the number of lines pumped if measured, so far if the pumper is still running
+     */
+    long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return the time in nanoseconds spent in the consumer if measured, so far if the pumper is still running
+     */
+    long getConsumerNanos() {
+        return consumerNanos;
     }
 
     @Override
     public void run() {
-        boolean outError = out != null ? out.checkError() : false;
+        outError = out != null ? out.checkError() : false;
 
         try {
-            for (String line = in.readLine(); line != null; line = in.readLine()) {
-                try {
-                    if (exception == null && consumer != null && !isDisabled()) {
-                        consumer.consumeLine(line);
+            if (rawConsumer != null) {
+                pumpBytes();
+                return;
+            }
+
+            final List<String> batch = consumer instanceof BatchStreamConsumer ? new ArrayList<String>() : null;
+            int pending = 0;
+            long firstPendingTime = 0L;
+            String line;
+            String lastLine = null;
+            while ((line = readLine()) != null) {
+                lastLine = line;
+                if (metered) {
+                    lineCount++;
+                }
+                if (batch != null) {
+                    batch.add(line);
+                } else {
+                    try {
+                        if (exception == null && consumer != null && !isDisabled()) {
+                            long start = metered ? System.nanoTime() : 0L;
+                            consumer.consumeLine(line);
+                            if (metered) {
+                                consumerNanos += System.nanoTime() - start;
+                            }
+                        }
+                    } catch (Exception t) {
+                        exception = t;
                     }
-                } catch (Exception t) {
-                    exception = t;
                 }
 
                 if (out != null && !outError) {
                     out.println(line);
+                }
 
-                    out.flush();
-
-                    if (out.checkError()) {
-                        outError = true;
-
-                        try {
-                            // Thrown to fill in stack trace elements.
-                            throw new IOException(String.format("Failure printing line '%s'.", line));
-                        } catch (final IOException e) {
-                            exception = e;
-                        }
-                    }
+                if (pending++ == 0 && maxBatchDelayNanos > 0) {
+                    firstPendingTime = System.nanoTime();
+                }
+                if (pending >= maxBatchLines
+                        || (maxBatchDelayNanos > 0 && System.nanoTime() - firstPendingTime >= maxBatchDelayNanos)
+                        || !ready()) {
+                    deliver(batch, line);
+                    pending = 0;
                 }
             }
+            if (pending > 0) {
+                deliver(batch, lastLine);
+            }
         } catch (IOException e) {
             exception = e;
         } finally {
             try {
-                in.close();
+                closeInput();
             } catch (final IOException e2) {
                 if (exception == null) {
                     exception = e2;
@@ -164,6 +375,76 @@ public void run() {
         }
     }
 
+    private void pumpBytes() throws IOException {
+        byte[] buffer = new byte[RAW_SIZE];
+        int n;
+        while ((n = rawIn.read(buffer)) != -1) {
+            try {
+                if (exception == null && !isDisabled()) {
+                    rawConsumer.consume(buffer, 0, n);
+                }
+            } catch (Exception t) {
+                exception = t;
+            }
+        }
+    }
+
+    private String readLine() throws IOException {
+        return scanner != null ? scanner.readLine() : in.readLine();
+    }
+
+    private boolean ready() throws IOException {
+        return scanner != null ? scanner.ready() : in.ready();
+    }
+
+    private void closeInput() throws IOException {
+        if (scanner != null) {
+            scanner.close();
+        } else if (rawIn != null) {
+            rawIn.close();
+        } else {
+            in.close();
+        }
+    }
+
+    /**
+     * Delivers the pending lines: gives the batch to the consumer and flushes the writer.
+     *
+     * @param batch the lines for a {@link BatchStreamConsumer}, <code>null</code> for other consumers
+     * @param lastLine the last line printed, for error reporting
+     */
+    private void deliver(List<String> batch, String lastLine) {
+        if (batch != null) {
+            try {
+                if (exception == null && !isDisabled()) {
+                    long start = metered ? System.nanoTime() : 0L;
+                    ((BatchStreamConsumer) consumer).consumeLines(batch);
+                    if (metered) {
+                        consumerNanos += System.nanoTime() - start;
+                    }
+                }
+            } catch (Exception t) {
+                exception = t;
+            }
+            batch.clear();
+        }
+
+        if (out != null && !outError) {
+            out.flush();
+
+            if (out.checkError()) {
+                outError = true;
+
+                try {
+                    // Thrown to fill in stack trace elements.
+                    throw new IOException(String.format("Failure printing line '%s'.", lastLine));
+                } catch (final IOException e) {
+                    exception = e;
+                }
+            }
+        }
+    }
+
     public void flush() {
         if (out != null) {
             out.flush();
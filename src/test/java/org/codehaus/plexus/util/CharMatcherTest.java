@@ -0,0 +1,78 @@
+package org.codehaus.plexus.util;
+
+/*
+ * Copyright The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link CharMatcher}.
+ *
+ * @since 4.0.4
+ */
+class CharMatcherTest {
+    @Test
+    void predefinedMatchersAgreeWithCharacter() {
+        for (int i = 0; i <= Character.MAX_VALUE; i++) {
+            char c = (char) i;
+            assertEquals(Character.isWhitespace(c), CharMatcher.whitespace().matches(c), "whitespace " + i);
+            assertEquals(Character.isLetter(c), CharMatcher.letter().matches(c), "letter " + i);
+            assertEquals(Character.isDigit(c), CharMatcher.digit().matches(c), "digit " + i);
+            assertEquals(
+                    Character.isLetterOrDigit(c), CharMatcher.letterOrDigit().matches(c), "letter or digit " + i);
+        }
+    }
+
+    @Test
+    void anyOf() {
+        CharMatcher matcher = CharMatcher.anyOf("a?é€");
+        assertTrue(matcher.matches('a'));
+        assertTrue(matcher.matches('?'));
+        assertTrue(matcher.matches('é'));
+        assertTrue(matcher.matches('€'));
+        assertFalse(matcher.matches('b'));
+        assertFalse(matcher.matches('è'));
+        assertFalse(matcher.matches('\uffff'));
+        assertFalse(CharMatcher.anyOf("").matches('\u0000'));
+
+        assertEquals("xyz", matcher.trimFrom("a?xyz€"));
+        assertEquals("xyz€", matcher.trimLeadingFrom("a?xyz€"));
+        assertEquals("a?xyz", matcher.trimTrailingFrom("a?xyz€"));
+        assertEquals("", matcher.trimFrom("aaa"));
+        assertEquals("xyz", matcher.removeFrom("xa?yéz"));
+        assertEquals(1, matcher.indexIn("xa?y", 0));
+        assertEquals(2, matcher.indexIn("xa?y", 2));
+        assertEquals(-1, matcher.indexIn("xa?y", 3));
+        assertEquals(2, matcher.lastIndexIn("xa?y"));
+        assertTrue(matcher.matchesAllOf("a?€"));
+        assertFalse(matcher.matchesAllOf("a?b"));
+    }
+
+    @Test
+    void or() {
+        CharMatcher matcher = CharMatcher.digit().or(CharMatcher.anyOf(" €"));
+        assertTrue(matcher.matches('1'));
+        assertTrue(matcher.matches(' '));
+        assertTrue(matcher.matches('€'));
+        assertTrue(matcher.matches('\u0661'));
+        assertFalse(matcher.matches('a'));
+        assertTrue(matcher.matchesAllOf("1 2 €"));
+    }
+}
@@ -23,6 +23,7 @@
 
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -145,4 +146,152 @@ void testNormalZipExtraction() throws Exception {
         File normalFile = new File(targetDir, "subdir/normal.txt");
         assertTrue(normalFile.exists(), "File should be extracted to correct location");
     }
+
+    @Test
+    void testConcurrentZipExtraction() throws Exception {
+        File tempDir = getTestDirectory();
+        File zipFile = new File(tempDir, "concurrent.zip");
+        File targetDir = new File(tempDir, "extract-concurrent");
+
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(zipFile.toPath()))) {
+            zos.putNextEntry(new ZipEntry("empty/"));
+            zos.closeEntry();
+            for (int i = 0; i < 50; i++) {
+                zos.putNextEntry(new ZipEntry("dir" + (i % 5) + "/file" + i + ".txt"));
+                zos.write(("content " + i).getBytes());
+                zos.closeEntry();
+            }
+        }
+
+        Expand expand = new Expand();
+        expand.setSrc(zipFile);
+        expand.setDest(targetDir);
+        expand.setThreads(4);
+        expand.execute();
+
+        assertTrue(new File(targetDir, "empty").isDirectory(), "Directory entry should be created");
+        for (int i = 0; i < 50; i++) {
+            File file = new File(targetDir, "dir" + (i % 5) + "/file" + i + ".txt");
+            assertEquals("content " + i, FileUtils.fileRead(file));
+        }
+    }
+
+    @Test
+    void testConcurrentZipExtractionOfDuplicateEntries() throws Exception {
+        File tempDir = getTestDirectory();
+        File zipFile = new File(tempDir, "duplicates.zip");
+        File targetDir = new File(tempDir, "extract-duplicates");
+
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(zipFile.toPath()))) {
+            for (int i = 0; i < 20; i++) {
+                zos.putNextEntry(new ZipEntry("dir" + i + "/../same.txt"));
+                zos.write(("content " + i).getBytes());
+                zos.closeEntry();
+            }
+            zos.putNextEntry(new ZipEntry("same.txt"));
+            zos.write("last".getBytes());
+            zos.closeEntry();
+        }
+
+        Expand expand = new Expand();
+        expand.setSrc(zipFile);
+        expand.setDest(targetDir);
+        expand.setThreads(4);
+        expand.execute();
+
+        assertEquals("last", FileUtils.fileRead(new File(targetDir, "same.txt")));
+    }
+
+    @Test
+    void testZipSlipVulnerabilityWithConcurrentExtraction() throws Exception {
+        File tempDir = getTestDirectory();
+        File zipFile = new File(tempDir, "malicious-concurrent.zip");
+        File targetDir = new File(tempDir, "extract-malicious-concurrent");
+        targetDir.mkdirs();
+
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(zipFile.toPath()))) {
+            zos.putNextEntry(new ZipEntry("../evil-concurrent.txt"));
+            zos.write("malicious content".getBytes());
+            zos.closeEntry();
+        }
+
+        Expand expand = new Expand();
+        expand.setSrc(zipFile);
+        expand.setDest(targetDir);
+        expand.setThreads(4);
+
+        assertThrows(Exception.class, () -> expand.execute());
+        assertFalse(new File(tempDir, "evil-concurrent.txt").exists(), "File should not be extracted");
+    }
+
+    @Test
+    void testIncrementalZipExtraction() throws Exception {
+        File tempDir = getTestDirectory();
+        File zipFile = new File(tempDir, "incremental.zip");
+        File targetDir = new File(tempDir, "extract-incremental");
+        File manifest = new File(tempDir, "incremental.properties");
+
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(zipFile.toPath()))) {
+            zos.putNextEntry(new ZipEntry("unchanged.txt"));
+            zos.write("unchanged content".getBytes());
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("changed.txt"));
+            zos.write("original content".getBytes());
+            zos.closeEntry();
+        }
+
+        for (File recorded : new File[] {null, manifest}) {
+            FileUtils.deleteDirectory(targetDir);
+
+            Expand expand = new Expand();
+            expand.setSrc(zipFile);
+            expand.setDest(targetDir);
+            expand.setIncremental(true);
+            expand.setManifest(recorded);
+            expand.execute();
+
+            File unchanged = new File(targetDir, "unchanged.txt");
+            File changed = new File(targetDir, "changed.txt");
+            assertEquals("unchanged content", FileUtils.fileRead(unchanged));
+            assertEquals("original content", FileUtils.fileRead(changed));
+
+            // same size, different content
+            FileUtils.fileWrite(changed, "modified content");
+            long marker = unchanged.lastModified() - 60000L;
+            unchanged.setLastModified(marker);
+
+            expand.execute();
+
+            assertEquals(marker, unchanged.lastModified(), "Unchanged file should not be rewritten");
+            assertEquals("original content", FileUtils.fileRead(changed));
+        }
+        assertTrue(manifest.isFile(), "Manifest should be written");
+    }
+
+    @Test
+    void testSelectiveZipExtraction() throws Exception {
+        File tempDir = getTestDirectory();
+        File zipFile = new File(tempDir, "selective.zip");
+        File targetDir = new File(tempDir, "extract-selective");
+
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(zipFile.toPath()))) {
+            for (String name : new String[] {"META-INF/MANIFEST.MF", "a/b/keep.txt", "a/b/skip.txt", "a/c/other.xml"}) {
+                zos.putNextEntry(new ZipEntry(name));
+                zos.write(name.getBytes());
+                zos.closeEntry();
+            }
+        }
+
+        Expand expand = new Expand();
+        expand.setSrc(zipFile);
+        expand.setDest(targetDir);
+        expand.setIncludes(new String[] {"a/**/*.txt", "META-INF/"});
+        expand.setExcludes(new String[] {"**/skip.txt"});
+        expand.execute();
+
+        assertTrue(new File(targetDir, "META-INF/MANIFEST.MF").isFile());
+        assertEquals("a/b/keep.txt", FileUtils.fileRead(new File(targetDir, "a/b/keep.txt")));
+        assertFalse(new File(targetDir, "a/b/skip.txt").exists());
+        assertFalse(new File(targetDir, "a/c").exists());
+    }
 }
@@ -25,9 +25,14 @@
 import java.io.Reader;
 import java.io.Writer;
 import java.net.URL;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -886,6 +891,38 @@ public Reader getReader(Reader reader) {
         FileUtils.copyFile(srcFile, destFile, "UTF-8", wrappers1);
         assertTrue(FileUtils.contentEquals(compareFile, destFile), "Files should be equal.");
 
+        // test ${token} filtered as bytes
+        FileUtils.FilterWrapper[] wrappers2 = new FileUtils.FilterWrapper[] {
+            new FileUtils.FilterWrapper() {
+                public Reader getReader(Reader reader) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public InputStream getInputStream(InputStream stream, Charset charset) {
+                    return new InterpolationFilterInputStream(stream, filterProperties, "${", "}", charset);
+                }
+            }
+        };
+        destFile.delete();
+        FileUtils.copyFile(srcFile, destFile, "UTF-8", wrappers2);
+        assertTrue(FileUtils.contentEquals(compareFile, destFile), "Files should be equal.");
+
+        // characters split across reads are decoded, malformed content fails like with the reader
+        StringBuilder accented = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            accented.append("\u00e9\u20ac${s}");
+        }
+        FileUtils.fileWrite(srcFile.getAbsolutePath(), "UTF-8", accented.toString());
+        FileUtils.copyFile(srcFile, destFile, "UTF-8", wrappers2);
+        assertEquals(accented.toString().replace("${s}", "sample text"), FileUtils.fileRead(destFile, "UTF-8"));
+
+        Files.write(srcFile.toPath(), new byte[] {'$', '{', 's', '}', (byte) 0xe9, ' '});
+        assertThrows(IOException.class, () -> FileUtils.copyFile(srcFile, destFile, "UTF-8", wrappers1));
+        assertThrows(IOException.class, () -> FileUtils.copyFile(srcFile, destFile, "UTF-8", wrappers2));
+        Files.write(srcFile.toPath(), new byte[] {'$', '{', 's', '}', (byte) 0xe9});
+        assertThrows(IOException.class, () -> FileUtils.copyFile(srcFile, destFile, "UTF-8", wrappers2));
+
         srcFile.delete();
         destFile.delete();
         compareFile.delete();
@@ -1217,6 +1254,62 @@ void testcopyDirectoryLayoutWithExcludesIncludes() throws Exception {
         }
     }
 
+    @Test
+    void loadFileLines() throws Exception {
+        String content = "# comment\r\n  first  \n\n\t\r\n  # indented comment\nsecond\r\u00e9t\u00e9 ";
+        List<String> expected = Arrays.asList("first", "second", "\u00e9t\u00e9");
+
+        File file = new File(getTestDirectory(), "lines-utf8.txt");
+        FileUtils.fileWrite(file, "UTF-8", content);
+        assertEquals(expected, toList(FileUtils.loadFileLines(file, "UTF-8")));
+
+        file = new File(getTestDirectory(), "lines-utf16.txt");
+        FileUtils.fileWrite(file, "UTF-16", content);
+        assertEquals(expected, toList(FileUtils.loadFileLines(file, "UTF-16")));
+
+        assertFalse(FileUtils.loadFileLines(new File(getTestDirectory(), "missing.txt"), null)
+                .iterator()
+                .hasNext());
+    }
+
+    @Test
+    void loadFileUtf8() throws Exception {
+        File file = new File(getTestDirectory(), "load-utf8.txt");
+        FileUtils.fileWrite(file, "UTF-8", "# comment\n\u00e9t\u00e9 \u20ac\n");
+        assertEquals(Collections.singletonList("\u00e9t\u00e9 \u20ac"), FileUtils.loadFile(file));
+
+        Files.write(file.toPath(), new byte[] {'a', '\n', (byte) 0xff, '\n'});
+        assertThrows(IOException.class, () -> FileUtils.loadFile(file));
+
+        Files.write(file.toPath(), new byte[] {'a', '\n', '#', ' ', (byte) 0xff, '\n'});
+        assertThrows(IOException.class, () -> FileUtils.loadFile(file));
+    }
+
+    @Test
+    void loadFileLinesLarge() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            content.append(i % 10 == 0 ? "# entry " : "  entry ").append(i).append('\n');
+        }
+        File file = new File(getTestDirectory(), "lines-large.txt");
+        FileUtils.fileWrite(file, "UTF-8", content.toString());
+        assertTrue(file.length() > FileUtils.ONE_MB);
+
+        List<String> lines = toList(FileUtils.loadFileLines(file, "UTF-8"));
+        assertEquals(90000, lines.size());
+        assertEquals("entry 1", lines.get(0));
+        assertEquals("entry 99999", lines.get(lines.size() - 1));
+        assertTrue(file.delete());
+    }
+
+    private static List<String> toList(Iterable<String> lines) {
+        List<String> list = new ArrayList<>();
+        for (String line : lines) {
+            list.add(line);
+        }
+        return list;
+    }
+
     /**
      * Be sure that {@link org.codehaus.plexus.util.FileUtils#createTempFile(String, String, File)} is always unique.
      */
@@ -17,7 +17,9 @@
  */
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -251,6 +253,46 @@ void inputStreamToByteArray() throws Exception {
         fin.close();
     }
 
+    @Test
+    void fileInputStreamToByteArray() throws Exception {
+        try (FileInputStream fin = new FileInputStream(testFile)) {
+            byte[] out = IOUtil.toByteArray(fin);
+            assertEquals(0, fin.available(), "Not all bytes were read");
+            assertEqualContent(out, testFile);
+        }
+    }
+
+    @Test
+    void inputStreamToByteArrayWithExpectedLength() throws Exception {
+        byte[] in = Files.readAllBytes(testFile.toPath());
+
+        assertEqualContent(in, IOUtil.toByteArray(new ByteArrayInputStream(in), 16, in.length));
+        // the expected length is only a hint, shorter and longer streams are read completely
+        try (InputStream fin = Files.newInputStream(testFile.toPath())) {
+            assertEqualContent(in, IOUtil.toByteArray(fin, 16, in.length / 3));
+        }
+        try (InputStream fin = Files.newInputStream(testFile.toPath())) {
+            assertEqualContent(in, IOUtil.toByteArray(fin, 16, in.length * 2L));
+        }
+        try (InputStream fin = Files.newInputStream(testFile.toPath())) {
+            assertEqualContent(in, IOUtil.toByteArray(fin, 16, -1));
+        }
+        // the length of a file opened from a Path is known
+        try (InputStream fin = Files.newInputStream(testFile.toPath())) {
+            assertEqualContent(in, IOUtil.toByteArray(fin));
+        }
+    }
+
+    @Test
+    void inputStreamToStringWithExpectedLength() throws Exception {
+        String expected = "h\u00e9llo w\u00f6rld";
+        byte[] in = expected.getBytes("UTF-8");
+
+        assertEquals(expected, IOUtil.toString(new ByteArrayInputStream(in), "UTF-8"));
+        assertEquals(expected, IOUtil.toString(new ByteArrayInputStream(in), "UTF-8", 4, 3));
+        assertEquals(expected, IOUtil.toString(new ByteArrayInputStream(in), "UTF-8", 4, in.length));
+    }
+
     @Test
     void stringToByteArray() throws Exception {
         Reader fin = Files.newBufferedReader(testFile.toPath());
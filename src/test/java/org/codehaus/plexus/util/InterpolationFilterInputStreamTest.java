@@ -0,0 +1,89 @@
+package org.codehaus.plexus.util;
+
+/*
+ * Copyright The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests {@link InterpolationFilterInputStream} against {@link InterpolationFilterReader}.
+ *
+ * @since 4.0.4
+ */
+class InterpolationFilterInputStreamTest {
+    @Test
+    void sameResultAsReader() throws Exception {
+        Map<String, Object> m = new HashMap<>();
+        m.put("name", "jäson");
+        m.put("noun", "€");
+        m.put("empty", "");
+        m.put("né", "accented key");
+
+        String[] texts = {
+            "${name} is an ${noun}. ${not.interpolated}",
+            "été ${né} ${empty}${name",
+            "${${name}} $${noun}} ${} $",
+            "@name@ is an @noun@ @@ @unknown@noun@ end@"
+        };
+        for (String text : texts) {
+            assertSameResult(text, m, "${", "}", StandardCharsets.UTF_8);
+            assertSameResult(text, m, "@", "@", StandardCharsets.UTF_8);
+            assertSameResult(text, m, "${", "}", StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    @Test
+    void unsupported() {
+        Map<String, Object> m = new HashMap<>();
+        ByteArrayInputStream in = new ByteArrayInputStream(new byte[0]);
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new InterpolationFilterInputStream(in, m, "${", "}", StandardCharsets.UTF_16));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new InterpolationFilterInputStream(in, m, "«", "»", StandardCharsets.UTF_8));
+
+        InterpolationFilterInputStream stream = new InterpolationFilterInputStream(in, m, StandardCharsets.UTF_8);
+        assertFalse(stream.markSupported());
+        assertThrows(UnsupportedOperationException.class, () -> stream.mark(1));
+        assertThrows(IOException.class, stream::reset);
+    }
+
+    private static void assertSameResult(
+            String text, Map<String, Object> m, String beginToken, String endToken, Charset charset) throws Exception {
+        String expected =
+                IOUtil.toString(new InterpolationFilterReader(new StringReader(text), m, beginToken, endToken));
+
+        // values which cannot be encoded are replaced the same way as by the reader + writer
+        byte[] expectedBytes = expected.getBytes(charset);
+        byte[] actual = IOUtil.toByteArray(new InterpolationFilterInputStream(
+                new ByteArrayInputStream(text.getBytes(charset)), m, beginToken, endToken, charset));
+
+        assertEquals(new String(expectedBytes, charset), new String(actual, charset), text);
+    }
+}
@@ -154,6 +154,22 @@ void interpolationWithSpecifiedBoundaryTokensAndAdditionalTokenCharacter() throw
         assertEquals("jason (known as jason@somewhere) is an asshole", interpolate(foo, m, "@", "@"));
     }
 
+    @Test
+    void interpolationAcrossReadAheadBuffer() throws Exception {
+        Map<String, String> m = new HashMap<>();
+        m.put("name", "jason");
+        m.put("empty", "");
+
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            input.append("line ").append(i).append(" ${name}${empty} ${unknown}\n");
+            expected.append("line ").append(i).append(" jason ${unknown}\n");
+        }
+
+        assertEquals(expected.toString(), interpolate(input.toString(), m));
+    }
+
     private String interpolate(String input, Map context) throws Exception {
         return IOUtil.toString(new InterpolationFilterReader(new StringReader(input), context));
     }
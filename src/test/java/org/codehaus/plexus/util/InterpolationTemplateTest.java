@@ -0,0 +1,78 @@
+package org.codehaus.plexus.util;
+
+/*
+ * Copyright The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Test for {@link InterpolationTemplate}.
+ */
+class InterpolationTemplateTest {
+    @Test
+    void renderWithDifferentVariables() {
+        InterpolationTemplate template = InterpolationTemplate.compile("${name} is an ${noun}. ${not.interpolated}");
+
+        Map<String, String> m = new HashMap<>();
+        m.put("name", "jason");
+        m.put("noun", "asshole");
+        assertEquals("jason is an asshole. ${not.interpolated}", template.render(m));
+
+        m.put("name", "");
+        m.put("not.interpolated", "done");
+        assertEquals(" is an asshole. done", template.render(m));
+    }
+
+    @Test
+    void compileIsCached() {
+        String text = new StringBuilder("cached ${value}").toString();
+        assertSame(InterpolationTemplate.compile(text), InterpolationTemplate.compile("cached ${value}"));
+
+        String large = StringUtils.repeat("${value} ", 10000);
+        InterpolationTemplate template = InterpolationTemplate.compile(large);
+        assertNotSame(template, InterpolationTemplate.compile(large));
+        assertEquals(large, template.getText());
+    }
+
+    @Test
+    void sameResultAsInterpolationFilterReader() throws Exception {
+        Map<String, Object> m = new HashMap<>();
+        m.put("name", "jason");
+        m.put("noun", "asshole");
+
+        String[][] cases = {
+            {"@name@ (known as jason@somewhere) is an @noun@", "@", "@"},
+            {"@name@ is an @noun@. @not.interpolated@ baby @foo@. @bar@", "@", "@"},
+            {"This is a ${test!} again ${name$}", "${", "$}"},
+            {"This is a $!test} again ${name} ${noun", "${", "}"},
+            {"$${name} @@name@@ @@@name@@@", "${", "}"},
+            {"@@name@@ and @@noun@ end", "@@", "@@"}
+        };
+        for (String[] c : cases) {
+            String expected = IOUtil.toString(new InterpolationFilterReader(new StringReader(c[0]), m, c[1], c[2]));
+            assertEquals(
+                    expected, InterpolationTemplate.compile(c[0], c[1], c[2]).render(m), c[0]);
+        }
+    }
+}
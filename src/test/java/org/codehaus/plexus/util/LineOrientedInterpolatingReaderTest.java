@@ -26,6 +26,7 @@
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 
 /**
  * Generated by JUnitDoclet, a tool provided by ObjectFab GmbH under LGPL. Please see www.junitdoclet.org, www.gnu.org
@@ -63,6 +64,41 @@ void defaultInterpolationWithNonInterpolatedValueAtEnd() throws Exception {
         assertEquals("jason is an asshole. ${not.interpolated}", bar);
     }
 
+    @Test
+    void expressionCache() throws Exception {
+        Map<String, String> m = getStandardMap();
+        Map<String, String> cache = new HashMap<>();
+
+        String foo = "${name} is an ${noun}.\n${name} is an ${noun} again. ${not.interpolated}\r\nplain line\n";
+
+        LineOrientedInterpolatingReader reader =
+                new LineOrientedInterpolatingReader(new StringReader(foo), m, "${", "}", "\\", cache);
+        assertEquals(
+                "jason is an asshole.\njason is an asshole again. ${not.interpolated}\r\nplain line\n",
+                IOUtil.toString(reader));
+        assertEquals("jason", cache.get("name"));
+        assertFalse(cache.containsKey("not.interpolated"));
+
+        // the memo is shared and takes precedence over the context until invalidated
+        m.put("name", "brett");
+        reader = new LineOrientedInterpolatingReader(new StringReader("${name}"), m, "${", "}", "\\", cache);
+        assertEquals("jason", IOUtil.toString(reader));
+
+        reader = new LineOrientedInterpolatingReader(new StringReader("${name}\n${name}"), m, "${", "}", "\\", cache);
+        char[] buf = new char[4];
+        assertEquals(4, reader.read(buf, 0, 4));
+        reader.invalidateExpression("name");
+        assertEquals("jaso", new String(buf));
+        assertEquals("n\nbrett", IOUtil.toString(reader));
+
+        m.put("name", "john");
+        reader.clearExpressionCache();
+        assertEquals(
+                "john",
+                IOUtil.toString(
+                        new LineOrientedInterpolatingReader(new StringReader("${name}"), m, "${", "}", "\\", cache)));
+    }
+
     private Map<String, String> getStandardMap() {
         Map<String, String> m = new HashMap<>();
         m.put("name", "jason");
@@ -0,0 +1,138 @@
+package org.codehaus.plexus.util;
+
+/*
+ * Copyright The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests {@link MultiTokenInterpolationFilterReader}.
+ *
+ * @since 4.0.4
+ */
+class MultiTokenInterpolationFilterReaderTest {
+    @Test
+    void sameResultAsChainedReaders() throws Exception {
+        Map<String, Object> m = getStandardMap();
+
+        String[] texts = {
+            "${name} is an @noun@. ${not.interpolated} @not.interpolated@",
+            "@name@@noun@ and ${name}${noun} at the end",
+            "user@example.org costs $5 {braces} ${empty}${name",
+            ""
+        };
+        for (String text : texts) {
+            Reader chained = new InterpolationFilterReader(
+                    new InterpolationFilterReader(new StringReader(text), m, "${", "}"), m, "@", "@");
+            assertEquals(IOUtil.toString(chained), interpolate(text, m), text);
+        }
+    }
+
+    @Test
+    void valuesAreNotInterpolatedAgain() throws Exception {
+        Map<String, Object> m = getStandardMap();
+        m.put("ref", "@name@");
+
+        assertEquals("@name@ jason", interpolate("${ref} @name@", m));
+    }
+
+    @Test
+    void longestBeginTokenFirst() throws Exception {
+        Map<String, Object> m = getStandardMap();
+
+        String text = "$[name] $$[name]] $$$[noun]] $[$$[noun]]";
+        Reader reader = new MultiTokenInterpolationFilterReader(
+                new StringReader(text), m, new String[] {"$[", "$$["}, new String[] {"]", "]]"});
+
+        assertEquals("jason jason $asshole $[asshole", IOUtil.toString(reader));
+    }
+
+    @Test
+    void unterminatedExpressions() throws Exception {
+        Map<String, Object> m = getStandardMap();
+
+        assertEquals("@ jason ${ jason @", interpolate("@ ${name} ${ @name@ @", m));
+        assertEquals("${a jason", interpolate("${a ${name}", m));
+        assertEquals("${${name", interpolate("${${name", m));
+    }
+
+    @Test
+    void manyUnresolvedExpressions() throws Exception {
+        Map<String, Object> m = getStandardMap();
+
+        // every begin token shares the single end token at the end
+        String text = StringUtils.repeat("${a ", 100000) + "} ${name}";
+        assertEquals(text.substring(0, text.length() - 7) + "jason", interpolate(text, m));
+
+        // the end token is too far from the begin token
+        String key = StringUtils.repeat("k", MultiTokenInterpolationFilterReader.MAX_KEY_LENGTH);
+        m.put(key, "too long");
+        m.put(key.substring(1), "value");
+        assertEquals("${" + key + "} value", interpolate("${" + key + "} @" + key.substring(1) + "@", m));
+    }
+
+    @Test
+    void longInput() throws Exception {
+        Map<String, Object> m = getStandardMap();
+
+        StringBuilder text = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            text.append("line ").append(i).append(" ${name} @noun@ $ @\n");
+            expected.append("line ").append(i).append(" jason asshole $ @\n");
+        }
+
+        assertEquals(expected.toString(), interpolate(text.toString(), m));
+    }
+
+    @Test
+    void invalidTokens() {
+        Map<String, Object> m = getStandardMap();
+        StringReader in = new StringReader("");
+
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new MultiTokenInterpolationFilterReader(in, m, new String[] {"${"}, new String[0]));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new MultiTokenInterpolationFilterReader(in, m, new String[] {""}, new String[] {"}"}));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new MultiTokenInterpolationFilterReader(in, m, new String[] {"@", "@"}, new String[] {"@", "}"}));
+    }
+
+    private Map<String, Object> getStandardMap() {
+        Map<String, Object> m = new HashMap<>();
+        m.put("name", "jason");
+        m.put("noun", "asshole");
+        m.put("empty", "");
+        return m;
+    }
+
+    private String interpolate(String text, Map<String, Object> m) throws Exception {
+        Reader reader = new MultiTokenInterpolationFilterReader(
+                new StringReader(text), m, new String[] {"${", "@"}, new String[] {"}", "@"});
+        return IOUtil.toString(reader);
+    }
+}
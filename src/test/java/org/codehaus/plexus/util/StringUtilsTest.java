@@ -16,9 +16,14 @@
  * limitations under the License.
  */
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import org.junit.jupiter.api.Test;
 
@@ -209,6 +214,13 @@ void quoteShortVersionSingleQuotesPreserved() {
         assertEquals(src, result);
     }
 
+    @Test
+    void escapeWithNullPatternAndNothingToEscape() {
+        char[] escaped = {'\''};
+        assertEquals("plain", StringUtils.escape("plain", escaped, (String) null));
+        assertThrows(NullPointerException.class, () -> StringUtils.escape("it's", escaped, (String) null));
+    }
+
     @Test
     void split() {
         String[] tokens;
@@ -236,6 +248,30 @@ void split() {
         tokens = StringUtils.split("this is a test, really", ", ");
         assertNotNull(tokens);
         assertEquals(Arrays.asList("this", "is", "a", "test", "really"), Arrays.asList(tokens));
+
+        tokens = StringUtils.split("  this is a test, really ", ", ", 3);
+        assertEquals(Arrays.asList("this", "is", "a test, really "), Arrays.asList(tokens));
+
+        tokens = StringUtils.split(" this\tis\na\u00a0test ");
+        assertEquals(Arrays.asList("this", "is", "a\u00a0test"), Arrays.asList(tokens));
+    }
+
+    @Test
+    void splitWithoutCopies() {
+        assertArrayEquals(new int[] {2, 6, 7, 9}, StringUtils.splitOffsets(", this is", ", ", -1));
+        assertArrayEquals(new int[0], StringUtils.splitOffsets(",,", ",", 2));
+
+        final StringBuilder text = new StringBuilder("a/b//cd/");
+        final List<String> tokens = new ArrayList<>();
+        int count = StringUtils.split(text, "/", -1, new StringUtils.TokenHandler() {
+            @Override
+            public void token(CharSequence str, int start, int end) {
+                assertSame(text, str);
+                tokens.add(str.subSequence(start, end).toString());
+            }
+        });
+        assertEquals(3, count);
+        assertEquals(Arrays.asList("a", "b", "cd"), tokens);
     }
 
     @Test
@@ -259,4 +295,75 @@ void unifyLineSeparators() {
         assertEquals("this\nis\na\ntest", StringUtils.unifyLineSeparators(s, "\n"));
         assertEquals("this\r\nis\r\na\r\ntest", StringUtils.unifyLineSeparators(s, "\r\n"));
     }
+
+    @Test
+    void interpolate() {
+        Map<String, Object> namespace = new LinkedHashMap<>();
+        namespace.put("user", "jason");
+        namespace.put("user.home", "/home/jason");
+        namespace.put("empty", "");
+        namespace.put("with space", "spaced");
+
+        assertNull(StringUtils.interpolate(null, namespace));
+        assertEquals("no references", StringUtils.interpolate("no references", namespace));
+        assertEquals(
+                "/home/jason is jason's home, cost $5",
+                StringUtils.interpolate("${user.home} is ${user}'s home${empty}, cost $5", namespace));
+        // the first key of the namespace matching a $ reference wins
+        assertEquals("jason.home ${unknown}", StringUtils.interpolate("$user.home ${unknown}", namespace));
+        assertEquals("spaced $with space", StringUtils.interpolate("${with space} $with space", namespace));
+
+        // values are interpolated with the keys following theirs
+        namespace.put("user", "${with space}");
+        assertEquals("spaced", StringUtils.interpolate("${user}", namespace));
+
+        namespace.put("null", null);
+        assertThrows(NullPointerException.class, () -> StringUtils.interpolate("text", namespace));
+    }
+
+    @Test
+    void replaceAll() throws Exception {
+        Map<String, String> replacements = new HashMap<>();
+        replacements.put("&", "&amp;");
+        replacements.put("<", "&lt;");
+        replacements.put(">", "&gt;");
+        replacements.put("he", "HE");
+        replacements.put("hello", "bye");
+        replacements.put("ell", "ELL");
+        replacements.put("", "empty keys are ignored");
+
+        assertNull(StringUtils.replaceAll(null, replacements));
+        assertEquals("abc", StringUtils.replaceAll("abc", Collections.<String, String>emptyMap()));
+        assertEquals("", StringUtils.replaceAll("", replacements));
+        assertEquals(
+                "&lt;a&gt; &amp;amp; bye HEll sbye yELL",
+                StringUtils.replaceAll("<a> &amp; hello hell shello yell", replacements));
+
+        StringBuilder sb = new StringBuilder("> ");
+        StringUtils.replaceAll(new StringBuilder("<hello>"), replacements, sb);
+        assertEquals("> &lt;bye&gt;", sb.toString());
+    }
+
+    @Test
+    void appendToStringBuilder() {
+        StringBuilder sb = new StringBuilder();
+        StringUtils.join(new String[] {"a", "b"}, ", ", sb).append(" | ");
+        StringUtils.replace("a.b.c", ".", "/", -1, sb).append(" | ");
+        StringUtils.center("x", 5, "-", sb).append(" | ");
+        StringUtils.repeat("ab", 2, sb).append(" | ");
+        StringUtils.escape("\t\"", sb).append(" | ");
+        StringUtils.quoteAndEscape("a \"b\"", '"', new char[] {'"'}, new char[] {' '}, "\\%s", false, sb)
+                .append(" | ");
+        StringUtils.removeDuplicateWhitespace("a  \n b", sb).append(" | ");
+        StringUtils.unifyLineSeparators("a\r\nb\rc", "\n", sb);
+
+        assertEquals("a, b | a/b/c | --x-- | abab | \\t\\\" | \"a \\\"b\\\"\" | a b | a\nb\nc", sb.toString());
+
+        // null texts append nothing
+        sb.setLength(0);
+        StringUtils.replace(null, ".", "/", -1, sb);
+        StringUtils.quoteAndEscape(null, '"', new char[0], new char[0], "\\%s", true, sb);
+        StringUtils.unifyLineSeparators(null, "\n", sb);
+        assertEquals("", sb.toString());
+    }
 }
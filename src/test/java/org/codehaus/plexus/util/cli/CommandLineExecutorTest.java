@@ -0,0 +1,116 @@
+package org.codehaus.plexus.util.cli;
+
+/*
+ * Copyright The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.codehaus.plexus.util.cli.shell.CmdShell;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link CommandLineExecutor}.
+ *
+ * @since 4.0.4
+ */
+class CommandLineExecutorTest {
+    private final String ls = System.getProperty("line.separator");
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void execute() throws Exception {
+        Commandline cl = new Commandline();
+        cl.setExecutable("echo");
+        cl.createArg().setValue("hello");
+        cl.addEnvironment("CLE_TEST", "value");
+        CommandLineExecutor executor = new CommandLineExecutor(cl, 2);
+
+        String[] commandline = executor.getCommandline("world");
+        assertTrue(new File(commandline[0]).isAbsolute());
+        assertEquals("hello", commandline[1]);
+        assertEquals("world", commandline[2]);
+
+        for (String name : new String[] {"a", "b"}) {
+            CommandLineUtils.StringStreamConsumer out = new CommandLineUtils.StringStreamConsumer();
+            assertEquals(0, executor.execute(new String[] {name}, null, out, new DefaultConsumer(), 0));
+            assertEquals("hello " + name + ls, out.getOutput());
+        }
+
+        // the environment is the one of the template
+        cl = new Commandline();
+        cl.setExecutable("sh");
+        cl.createArg().setValue("-c");
+        cl.addEnvironment("CLE_TEST", "value");
+        executor = new CommandLineExecutor(cl, 1);
+        CommandLineUtils.StringStreamConsumer out = new CommandLineUtils.StringStreamConsumer();
+        assertEquals(0, executor.execute(new String[] {"echo $CLE_TEST"}, null, out, new DefaultConsumer(), 0));
+        assertEquals("value" + ls, out.getOutput());
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void executeAsync() throws Exception {
+        Commandline cl = new Commandline();
+        cl.setExecutable("sh");
+        cl.createArg().setValue("-c");
+        CommandLineExecutor executor = new CommandLineExecutor(cl, 3);
+
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(executor.executeAsync(
+                    new String[] {"exit " + i}, null, new DefaultConsumer(), new DefaultConsumer(), 0));
+        }
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, futures.get(i).get().intValue());
+        }
+    }
+
+    @Test
+    void shellCommandline() throws Exception {
+        Commandline cl = new Commandline();
+        cl.setShell(new CmdShell());
+        cl.setExecutable("my tool.exe");
+        cl.createArg().setValue("a b");
+        CommandLineExecutor executor = new CommandLineExecutor(cl, 1, null, true);
+
+        String[] commandline = executor.getCommandline("c");
+        assertEquals("cmd.exe", commandline[0]);
+        assertEquals("/C", commandline[3]);
+        assertEquals("\"\"my tool.exe\" \"a b\" c\"", commandline[4]);
+
+        cl.createArg().setValue("c");
+        assertArrayEquals(cl.getShellCommandline(), commandline);
+    }
+
+    @Test
+    void invalidWorkingDirectory() {
+        Commandline cl = new Commandline();
+        cl.setExecutable("echo");
+        cl.setWorkingDirectory(new File("target/does-not-exist"));
+        assertThrows(CommandLineException.class, () -> new CommandLineExecutor(cl, 1));
+        assertThrows(IllegalArgumentException.class, () -> new CommandLineExecutor(new Commandline(), 0));
+    }
+}
@@ -16,11 +16,25 @@
  * limitations under the License.
  */
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
 import org.junit.jupiter.api.condition.EnabledOnOs;
 import org.junit.jupiter.api.condition.OS;
 
@@ -67,6 +81,21 @@ void getSystemEnvVarsCaseInsensitive() {
         }
     }
 
+    /**
+     * Tests that the cached environment snapshots match the environment variables.
+     */
+    @Test
+    void getSystemEnvironment() {
+        Map<String, String> env = CommandLineUtils.getSystemEnvironment(true);
+        assertEquals(System.getenv(), env);
+        assertEquals(CommandLineUtils.getSystemEnvVars(true), env);
+
+        Map<String, String> upperCase = CommandLineUtils.getSystemEnvironment(false);
+        assertSame(upperCase, CommandLineUtils.getSystemEnvironment(false));
+        assertEquals(CommandLineUtils.getSystemEnvVars(false), upperCase);
+        assertThrows(UnsupportedOperationException.class, () -> upperCase.put("X", "y"));
+    }
+
     /**
      * Tests that environment variables on Windows are normalized to upper case. Does nothing on Unix platforms.
      */
@@ -98,6 +127,225 @@ void translateCommandline() throws Exception {
         assertCmdLineArgs(new String[] {"foo", " ' ", "bar"}, "foo \" ' \" bar");
     }
 
+    /**
+     * Tests that the process streams are handled by tasks of the given executor.
+     */
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void executeCommandLineWithStreamExecutor() throws Exception {
+        Commandline cl = new Commandline();
+        cl.setExecutable("cat");
+
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            for (int i = 0; i < 3; i++) {
+                CommandLineUtils.StringStreamConsumer out = new CommandLineUtils.StringStreamConsumer();
+                CommandLineUtils.StringStreamConsumer err = new CommandLineUtils.StringStreamConsumer();
+                byte[] in = ("line " + i + "\nlast line").getBytes(StandardCharsets.UTF_8);
+
+                int exitCode =
+                        CommandLineUtils.executeCommandLine(cl, new ByteArrayInputStream(in), out, err, 0, executor);
+
+                assertEquals(0, exitCode);
+                String ls = System.getProperty("line.separator");
+                assertEquals("line " + i + ls + "last line" + ls, out.getOutput());
+                assertEquals("", err.getOutput());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        CommandLineUtils.StringStreamConsumer out = new CommandLineUtils.StringStreamConsumer();
+        cl.setExecutable("echo");
+        cl.createArg().setValue("shared");
+        assertEquals(
+                0,
+                CommandLineUtils.executeCommandLine(
+                        cl, null, out, new DefaultConsumer(), 0, CommandLineUtils.getStreamExecutor()));
+        assertEquals("shared" + System.getProperty("line.separator"), out.getOutput());
+    }
+
+    /**
+     * Tests that a large input is fed completely to the process.
+     */
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void feedLargeInput() throws Exception {
+        Commandline cl = new Commandline();
+        cl.setExecutable("wc");
+        cl.createArg().setValue("-c");
+
+        byte[] in = new byte[3 * 1024 * 1024 + 17];
+        Arrays.fill(in, (byte) 'x');
+        CommandLineUtils.StringStreamConsumer out = new CommandLineUtils.StringStreamConsumer();
+        assertEquals(
+                0, CommandLineUtils.executeCommandLine(cl, new ByteArrayInputStream(in), out, new DefaultConsumer()));
+        assertEquals(String.valueOf(in.length), out.getOutput().trim());
+    }
+
+    /**
+     * Tests that redirected streams are moved by the operating system.
+     */
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void redirect() throws Exception {
+        File dir = new File("target/redirect-test");
+        dir.mkdirs();
+        File input = new File(dir, "input.txt");
+        File output = new File(dir, "output.txt");
+        Files.write(input.toPath(), "from file\n".getBytes(StandardCharsets.UTF_8));
+
+        Commandline cl = new Commandline();
+        cl.setExecutable("sh");
+        cl.createArg().setValue("-c");
+        cl.createArg().setValue("cat; echo error >&2");
+        cl.setRedirectInput(ProcessBuilder.Redirect.from(input));
+        cl.setRedirectOutput(ProcessBuilder.Redirect.to(output));
+        CommandLineUtils.StringStreamConsumer out = new CommandLineUtils.StringStreamConsumer();
+        CommandLineUtils.StringStreamConsumer err = new CommandLineUtils.StringStreamConsumer();
+        assertEquals(0, CommandLineUtils.executeCommandLine(cl, out, err));
+        assertEquals("from file\n", new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8));
+        assertEquals("", out.getOutput());
+        assertEquals("error" + System.getProperty("line.separator"), err.getOutput());
+
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> CommandLineUtils.executeCommandLine(
+                        cl, new ByteArrayInputStream(new byte[0]), new DefaultConsumer(), new DefaultConsumer()));
+
+        // the error stream merged into the pumped output
+        cl.setRedirectOutput(null);
+        cl.setRedirectErrorStream(true);
+        out = new CommandLineUtils.StringStreamConsumer();
+        err = new CommandLineUtils.StringStreamConsumer();
+        assertEquals(0, CommandLineUtils.executeCommandLine(cl, out, err));
+        assertEquals(
+                "from file" + System.getProperty("line.separator") + "error" + System.getProperty("line.separator"),
+                out.getOutput());
+        assertEquals("", err.getOutput());
+    }
+
+    /**
+     * Tests the metrics given to a process listener.
+     */
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void processListener() throws Exception {
+        final List<ProcessMetrics> metrics = new ArrayList<>();
+        Commandline cl = new Commandline();
+        cl.setExecutable("sh");
+        cl.createArg().setValue("-c");
+        cl.createArg().setValue("printf 'a\\nbc\\n'; printf 'error' >&2; exit 3");
+        cl.setProcessListener(new ProcessListener() {
+            @Override
+            public void processCompleted(ProcessMetrics m) {
+                metrics.add(m);
+            }
+        });
+
+        assertEquals(3, CommandLineUtils.executeCommandLine(cl, new DefaultConsumer(), new DefaultConsumer()));
+        assertEquals(1, metrics.size());
+        ProcessMetrics m = metrics.get(0);
+        assertEquals(Integer.valueOf(3), m.getExitCode());
+        assertEquals("sh", m.getCommandline()[0]);
+        assertTrue(m.getSpawnNanos() > 0);
+        assertTrue(m.getFirstOutputNanos() >= 0);
+        assertTrue(m.getWaitNanos() >= 0);
+        assertEquals(5, m.getOutput().getBytes());
+        assertEquals(2, m.getOutput().getLines());
+        assertEquals(5, m.getError().getBytes());
+        assertEquals(1, m.getError().getLines());
+
+        // a redirected stream is not measured, nor is a process that times out given an exit code
+        metrics.clear();
+        cl.setRedirectErrorStream(true);
+        CommandLineExecutor executor = new CommandLineExecutor(cl, 1);
+        assertEquals(3, executor.execute(new String[0], null, new DefaultConsumer(), new DefaultConsumer(), 0));
+        assertEquals(10, metrics.get(0).getOutput().getBytes());
+        assertEquals(0, metrics.get(0).getError().getBytes());
+
+        metrics.clear();
+        Commandline sleep = new Commandline("sleep 10");
+        sleep.setProcessListener(cl.getProcessListener());
+        assertThrows(
+                CommandLineTimeOutException.class,
+                () -> CommandLineUtils.executeCommandLine(sleep, new DefaultConsumer(), new DefaultConsumer(), 1));
+        assertNull(metrics.get(0).getExitCode());
+        assertTrue(metrics.get(0).getWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(900));
+        assertEquals(-1, metrics.get(0).getFirstOutputNanos());
+
+        // a failing listener does not change the outcome of the execution
+        cl.setProcessListener(new ProcessListener() {
+            @Override
+            public void processCompleted(ProcessMetrics m) {
+                throw new IllegalStateException("broken sink");
+            }
+        });
+        assertEquals(3, CommandLineUtils.executeCommandLine(cl, new DefaultConsumer(), new DefaultConsumer()));
+    }
+
+    /**
+     * Tests the futures of processes executed asynchronously.
+     */
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void executeCommandLineAsync() throws Exception {
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        List<CommandLineUtils.StringStreamConsumer> outs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Commandline cl = new Commandline();
+            cl.setExecutable("sh");
+            cl.createArg().setValue("-c");
+            cl.createArg().setValue("echo " + i + "; exit " + i);
+            CommandLineUtils.StringStreamConsumer out = new CommandLineUtils.StringStreamConsumer();
+            outs.add(out);
+            futures.add(CommandLineUtils.executeCommandLineAsync(cl, null, out, new DefaultConsumer(), 10, null));
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, futures.get(i).get().intValue());
+            assertEquals(i + System.getProperty("line.separator"), outs.get(i).getOutput());
+        }
+
+        // a rejected waiter destroys the process instead of blocking the caller
+        Commandline cl = new Commandline();
+        cl.setExecutable("sleep");
+        cl.createArg().setValue("30");
+        long start = System.nanoTime();
+        CompletableFuture<Integer> future = CommandLineUtils.executeCommandLineAsync(
+                cl, null, new DefaultConsumer(), new DefaultConsumer(), 0, command -> {
+                    throw new RejectedExecutionException("saturated");
+                });
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+        assertTrue(System.nanoTime() - start < 10_000_000_000L);
+    }
+
+    /**
+     * Tests that a process is killed as soon as it times out.
+     */
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void timeOut() throws Exception {
+        Commandline cl = new Commandline();
+        cl.setExecutable("sleep");
+        cl.createArg().setValue("30");
+
+        long start = System.nanoTime();
+        CompletableFuture<Integer> future = CommandLineUtils.executeCommandLineAsync(
+                cl, null, new DefaultConsumer(), new DefaultConsumer(), 1, null);
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+        assertInstanceOf(CommandLineTimeOutException.class, e.getCause());
+        assertTrue(System.nanoTime() - start < 10_000_000_000L);
+
+        // a process completing before the timeout is not waited for until the timeout
+        cl = new Commandline();
+        cl.setExecutable("true");
+        start = System.nanoTime();
+        assertEquals(0, CommandLineUtils.executeCommandLine(cl, new DefaultConsumer(), new DefaultConsumer(), 30));
+        assertTrue(System.nanoTime() - start < 10_000_000_000L);
+    }
+
     private void assertCmdLineArgs(String[] expected, String cmdLine) throws Exception {
         String[] actual = CommandLineUtils.translateCommandline(cmdLine);
         assertNotNull(actual);
@@ -0,0 +1,54 @@
+package org.codehaus.plexus.util.cli;
+
+/*
+ * Copyright The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link ProcessShutdownHook}.
+ *
+ * @since 4.0.4
+ */
+@DisabledOnOs(OS.WINDOWS)
+class ProcessShutdownHookTest {
+    @Test
+    void destroyAll() throws Exception {
+        Process registered = new ProcessBuilder("sleep", "60").start();
+        Process unregistered = new ProcessBuilder("sleep", "60").start();
+        try {
+            // a set of its own, the shared one holds the processes of other tests
+            ProcessShutdownHook hook = new ProcessShutdownHook();
+            hook.add(registered);
+            hook.add(unregistered);
+            hook.remove(unregistered);
+
+            hook.destroyAll();
+            assertTrue(registered.waitFor(10, TimeUnit.SECONDS));
+            assertFalse(unregistered.waitFor(100, TimeUnit.MILLISECONDS));
+        } finally {
+            registered.destroy();
+            unregistered.destroy();
+        }
+    }
+}
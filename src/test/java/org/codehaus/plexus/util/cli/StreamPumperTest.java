@@ -53,16 +53,25 @@
  */
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -218,4 +227,119 @@ void disabled() {
         streamPumper.run();
         assertEquals(0, streamConsumer.lines.size());
     }
+
+    @Test
+    void batches() {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            input.append("line").append(i).append('\n');
+        }
+        final List<List<String>> batches = new ArrayList<>();
+        BatchStreamConsumer consumer = new BatchStreamConsumer() {
+            @Override
+            public void consumeLines(List<String> lines) {
+                batches.add(new ArrayList<>(lines));
+            }
+        };
+        StringWriter sw = new StringWriter();
+        StreamPumper pumper =
+                new StreamPumper(new ByteArrayInputStream(input.toString().getBytes()), new PrintWriter(sw), consumer);
+        pumper.setBatchPolicy(4, 0);
+        pumper.run();
+
+        assertEquals(3, batches.size());
+        assertEquals(4, batches.get(0).size());
+        assertEquals("line0", batches.get(0).get(0));
+        assertEquals(2, batches.get(2).size());
+        assertEquals("line9", batches.get(2).get(1));
+        assertEquals(input.toString().replace("\n", lineSeparator), sw.toString());
+
+        assertThrows(IllegalArgumentException.class, () -> pumper.setBatchPolicy(0, 0));
+    }
+
+    @Test
+    void batchDeliveredWhenInputPauses() throws Exception {
+        final BlockingQueue<List<String>> batches = new LinkedBlockingQueue<>();
+        PipedOutputStream out = new PipedOutputStream();
+        StreamPumper pumper = new StreamPumper(new PipedInputStream(out), new BatchStreamConsumer() {
+            @Override
+            public void consumeLines(List<String> lines) {
+                batches.add(new ArrayList<>(lines));
+            }
+        });
+        pumper.setBatchPolicy(1000, 0);
+        pumper.start();
+
+        // the lines are not held until the batch is full or the stream ends
+        out.write("a\nb\n".getBytes());
+        out.flush();
+        List<String> lines = new ArrayList<>();
+        while (lines.size() < 2) {
+            List<String> batch = batches.poll(10, TimeUnit.SECONDS);
+            assertNotNull(batch);
+            lines.addAll(batch);
+        }
+        assertEquals(Arrays.asList("a", "b"), lines);
+
+        out.close();
+        pumper.waitUntilDone();
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    void batchConsumerFailure() {
+        GeneratorInputStream gis = new GeneratorInputStream(1024 * 1024);
+        StreamPumper pumper = new StreamPumper(gis, new BatchStreamConsumer() {
+            @Override
+            public void consumeLines(List<String> lines) {
+                throw new NullPointerException("too bad, the consumer is badly implemented...");
+            }
+        });
+        pumper.run();
+        assertEquals(gis.size, gis.read, "input stream was not fully consumed, producer deadlocks");
+        assertNotNull(pumper.getException());
+    }
+
+    @Test
+    void pumpingBytesWithCharset() {
+        byte[] input = "h\u00e9llo\r\nw\u00f6rld\r\rlast".getBytes(StandardCharsets.UTF_8);
+        TestConsumer consumer = new TestConsumer();
+        new StreamPumper(new ByteArrayInputStream(input), StandardCharsets.UTF_8, null, consumer).run();
+        assertEquals(Arrays.asList("h\u00e9llo", "w\u00f6rld", "", "last"), consumer.lines);
+
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new StreamPumper(new ByteArrayInputStream(input), StandardCharsets.UTF_16, null, consumer));
+    }
+
+    @Test
+    void maxLineLength() {
+        // 'é' is encoded as 2 bytes and is never split
+        byte[] input = "abc\u00e9\u00e9d\nabcde\nxy".getBytes(StandardCharsets.UTF_8);
+
+        TestConsumer split = new TestConsumer();
+        new StreamPumper(new ByteArrayInputStream(input), StandardCharsets.UTF_8, null, split, 4, false).run();
+        assertEquals(Arrays.asList("abc", "\u00e9\u00e9", "d", "abcd", "e", "xy"), split.lines);
+
+        TestConsumer truncated = new TestConsumer();
+        new StreamPumper(new ByteArrayInputStream(input), StandardCharsets.UTF_8, null, truncated, 4, true).run();
+        assertEquals(Arrays.asList("abc", "abcd", "xy"), truncated.lines);
+    }
+
+    @Test
+    void pumpingRawBytes() {
+        byte[] input = new byte[200000];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (byte) i;
+        }
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new StreamPumper(new ByteArrayInputStream(input), new RawStreamConsumer() {
+                    @Override
+                    public void consume(byte[] bytes, int offset, int length) {
+                        output.write(bytes, offset, length);
+                    }
+                })
+                .run();
+        assertTrue(Arrays.equals(input, output.toByteArray()));
+    }
 }